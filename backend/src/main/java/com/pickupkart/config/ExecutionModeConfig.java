@@ -0,0 +1,105 @@
+
+package com.pickupkart.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Chooses the threads that run requests, and with them every blocking repository call.
+// execution.mode=platform keeps Tomcat's worker pool (server.tomcat.threads.max caps concurrency);
+// execution.mode=virtual runs each request, and each async MVC task such as an export, on its own
+// virtual thread, so a MongoDB latency spike queues on the driver's connection pool rather than on
+// request threads. Virtual threads need Java 21: the executor is looked up reflectively, and on an
+// older runtime the mode falls back to platform threads with a warning. Scheduled jobs and the order
+// tracking senders keep their own platform threads either way.
+//
+// A virtual thread that blocks inside synchronized pins its carrier thread. Application code takes
+// ReentrantLocks around I/O for that reason; execution.pinning-diagnostics turns on the JDK's
+// pinned-thread traces (jdk.tracePinnedThreads) to catch the rest, e.g. in older MongoDB drivers.
+@Configuration
+public class ExecutionModeConfig implements WebMvcConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionModeConfig.class);
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    private final boolean virtual;
+
+    public ExecutionModeConfig(@Value("${execution.mode:platform}") String mode,
+                               @Value("${execution.pinning-diagnostics:false}") boolean pinningDiagnostics) {
+        boolean requested = "virtual".equalsIgnoreCase(mode.trim());
+        if (!requested && !"platform".equalsIgnoreCase(mode.trim())) {
+            throw new IllegalStateException("Error: execution.mode must be 'platform' or 'virtual', not '" + mode + "'.");
+        }
+        if (requested && pinningDiagnostics && System.getProperty("jdk.tracePinnedThreads") == null) {
+            // Read once, when the first virtual thread is created, so it has to be set before that
+            System.setProperty("jdk.tracePinnedThreads", "short");
+        }
+        this.virtual = requested && virtualThreadFactory("http-vt-").isPresent();
+        if (requested && !virtual) {
+            logger.warn("Execution mode: virtual threads need Java 21 or later (running {}), using platform threads",
+                    Runtime.version());
+        } else {
+            logger.info("Execution mode: {} threads", virtual ? "virtual" : "platform");
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> executionModeProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtual) {
+                protocolHandler.setExecutor(newExecutor("http-vt-"));
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (virtual) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(newExecutor("mvc-async-vt-")));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdown);
+    }
+
+    // Executors.newThreadPerTaskExecutor(factory); like the factory, resolved at runtime so the build stays on Java 17
+    private ExecutorService newExecutor(String namePrefix) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, virtualThreadFactory(namePrefix).orElseThrow());
+            executors.add(executor);
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Error: Could not create a virtual thread executor.", e);
+        }
+    }
+
+    // Thread.ofVirtual().name(prefix, 0).factory()
+    private static Optional<ThreadFactory> virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+
+package com.pickupkart.config;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoServerException;
+import com.mongodb.MongoWriteException;
+import com.pickupkart.model.*;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Creates the indexes declared on the entities at startup and then explains the hot query shapes,
+// warning about any that the planner would still answer with a collection scan.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IndexManager implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+
+    // Unique index names that callers map duplicate-key errors back to; keep them stable across releases
+    public static final String USER_LOGIN_NAME_INDEX = "loginName";
+    public static final String USER_EMAIL_INDEX = "email";
+    public static final String PAYMENT_PENDING_ORDER_INDEX = "orderId_pending";
+
+    // The server reports the violated index only in the error text: "... index: <name> dup key: {...}"
+    private static final Pattern DUPLICATE_KEY_INDEX = Pattern.compile("\\bindex: (\\S+) dup key");
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(
+            User.class, Role.class, Product.class, Courier.class, com.pickupkart.model.Order.class, Payment.class,
+            InventoryReservation.class, InventoryLease.class, OutboxEvent.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Value("${mongodb.index-manager.verify-plans:true}")
+    private boolean verifyPlans;
+
+    // Hot query shapes and the index each one must be answered with
+    private final List<QueryShape> queryShapes = List.of(
+            new QueryShape("orders", new Document("customerId", ""), new Document("orderDate", -1).append("_id", -1),
+                    "customer_orderDate_id"),
+            new QueryShape("orders", new Document("status", "PENDING"), new Document("orderDate", -1).append("_id", -1),
+                    "status_orderDate_id"),
+            new QueryShape("payments", new Document("transactionId", ""), null, "transactionId"),
+            new QueryShape("payments", new Document("orderId", ""), null, "orderId"),
+            new QueryShape("payments", new Document("customerId", ""), new Document("paymentDate", -1).append("_id", -1),
+                    "customer_paymentDate_id"),
+            new QueryShape("payments", new Document("status", "COMPLETED"), new Document("paymentDate", -1).append("_id", -1),
+                    "status_paymentDate_id"),
+            new QueryShape("products", new Document("quantity", new Document("$gt", 0)), null, "quantity"),
+            new QueryShape("products", new Document(), new Document("name", 1), "name"),
+            new QueryShape("couriers", new Document("isCustom", false), null, "isCustom"),
+            new QueryShape("order_events", new Document("state", "PENDING"), new Document("_id", 1), "state_id"),
+            new QueryShape("order_events", new Document("orderId", "").append("state", "PENDING"),
+                    new Document("sequence", 1), "orderId_state_sequence"));
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ensureIndexes();
+        if (verifyPlans) {
+            for (QueryShape shape : queryShapes) {
+                List<String> indexes = winningIndexes(shape);
+                if (indexes.isEmpty()) {
+                    logger.warn("Missing index: query {} is answered by a collection scan", shape);
+                } else if (!indexes.contains(shape.index)) {
+                    logger.warn("Unexpected plan: query {} scans {} instead of {}", shape, indexes, shape.index);
+                }
+            }
+        }
+    }
+
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            resolver.resolveIndexFor(entity).forEach(indexOps::ensureIndex);
+        }
+        // At most one PENDING payment per order; partial indexes cannot be declared with annotations
+        try {
+            mongoTemplate.indexOps(Payment.class).ensureIndex(new Index().on("orderId", Sort.Direction.ASC)
+                    .unique()
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is(Payment.PaymentStatus.PENDING.name())))
+                    .named(PAYMENT_PENDING_ORDER_INDEX));
+        } catch (DuplicateKeyException e) {
+            logger.error("Could not create index {}: some orders have more than one PENDING payment; "
+                    + "fail or remove the extra payments and restart", PAYMENT_PENDING_ORDER_INDEX, e);
+        }
+    }
+
+    // Returns the query shapes whose winning plan still contains a COLLSCAN stage
+    public List<String> findCollectionScans() {
+        List<String> unindexed = new ArrayList<>();
+        for (QueryShape shape : queryShapes) {
+            if (containsStage(winningPlan(shape), "COLLSCAN")) {
+                unindexed.add(shape.toString());
+            }
+        }
+        return unindexed;
+    }
+
+    List<QueryShape> queryShapes() {
+        return queryShapes;
+    }
+
+    // Names of the indexes scanned by the planner's winning plan for the shape; empty for a collection scan
+    List<String> winningIndexes(QueryShape shape) {
+        List<String> indexes = new ArrayList<>();
+        collectIndexNames(winningPlan(shape), indexes);
+        return indexes;
+    }
+
+    private Object winningPlan(QueryShape shape) {
+        Document find = new Document("find", shape.collection).append("filter", shape.filter);
+        if (shape.sort != null) {
+            find.append("sort", shape.sort);
+        }
+        Document explain = mongoTemplate.getDb().runCommand(
+                new Document("explain", find).append("verbosity", "queryPlanner"));
+        return explain.get("queryPlanner", Document.class).get("winningPlan");
+    }
+
+    private void collectIndexNames(Object plan, List<String> indexes) {
+        if (plan instanceof Document document) {
+            if ("IXSCAN".equals(document.get("stage")) && document.get("indexName") instanceof String name) {
+                indexes.add(name);
+            }
+            document.values().forEach(value -> collectIndexNames(value, indexes));
+        } else if (plan instanceof List<?> list) {
+            list.forEach(value -> collectIndexNames(value, indexes));
+        }
+    }
+
+    // Name of the unique index a duplicate-key error violated, or null if the driver error does not say
+    public static String violatedIndex(DuplicateKeyException e) {
+        String message = null;
+        if (e.getCause() instanceof MongoWriteException writeException) {
+            message = writeException.getError().getMessage();
+        } else if (e.getCause() instanceof MongoBulkWriteException bulkException && !bulkException.getWriteErrors().isEmpty()) {
+            message = bulkException.getWriteErrors().get(0).getMessage();
+        } else if (e.getCause() instanceof MongoServerException serverException) {
+            message = serverException.getMessage();
+        }
+        if (message == null) {
+            return null;
+        }
+        Matcher matcher = DUPLICATE_KEY_INDEX.matcher(message);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    record QueryShape(String collection, Document filter, Document sort, String index) {
+        @Override
+        public String toString() {
+            return collection + ".find(" + filter.toJson() + ")" + (sort != null ? ".sort(" + sort.toJson() + ")" : "");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+
+package com.pickupkart.config;
+
+import com.mongodb.DBRef;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.pickupkart.model.Role;
+import com.pickupkart.service.RoleRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoConfig {
+
+    // Only sessions started through it are transactional; plain repository calls are unaffected
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory,
+                                                      @Value("${checkout.transaction.max-commit-ms:2000}") long maxCommitMillis) {
+        return new MongoTransactionManager(databaseFactory, TransactionOptions.builder()
+                .readConcern(ReadConcern.SNAPSHOT)
+                .writeConcern(WriteConcern.MAJORITY)
+                .maxCommitTime(maxCommitMillis, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    @Bean
+    public MongoCustomConversions customConversions(ObjectProvider<RoleRegistry> roleRegistry) {
+        return new MongoCustomConversions(List.of(new RoleReferenceConverter(roleRegistry)));
+    }
+
+    // Users written before roles were stored by name hold DBRefs into "roles";
+    // resolve them from the in-memory registry instead of issuing a query per role.
+    @ReadingConverter
+    static class RoleReferenceConverter implements Converter<DBRef, Role.ERole> {
+        private final ObjectProvider<RoleRegistry> roleRegistry;
+
+        RoleReferenceConverter(ObjectProvider<RoleRegistry> roleRegistry) {
+            this.roleRegistry = roleRegistry;
+        }
+
+        @Override
+        public Role.ERole convert(DBRef source) {
+            return roleRegistry.getObject().findNameById(source.getId().toString())
+                    .orElseThrow(() -> new RuntimeException("Error: Role " + source.getId() + " is not found."));
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.pickupkart.config;
 
 import com.pickupkart.model.*;
 import com.pickupkart.repository.*;
+import com.pickupkart.service.CourierQuoteService;
+import com.pickupkart.service.TransactionIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -17,9 +19,6 @@ import java.util.Set;
 @Component
 public class MongoDBInitializer implements CommandLineRunner {
 
-    @Autowired
-    private RoleRepository roleRepository;
-    
     @Autowired
     private UserRepository userRepository;
     
@@ -37,12 +36,17 @@ public class MongoDBInitializer implements CommandLineRunner {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private CourierQuoteService courierQuoteService;
+    
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
 
     @Override
     public void run(String... args) throws Exception {
-        // Initialize only if the database is empty
-        if (roleRepository.count() == 0) {
-            initRoles();
+        // Initialize only if the database is empty (roles are created by RoleRegistry at startup)
+        if (userRepository.count() == 0) {
             User adminUser = initUsers();
             Product smartphone = initProducts();
             Courier expressDelivery = initCouriers();
@@ -51,12 +55,6 @@ public class MongoDBInitializer implements CommandLineRunner {
         }
     }
 
-    private void initRoles() {
-        roleRepository.save(new Role(null, Role.ERole.ADMIN));
-        roleRepository.save(new Role(null, Role.ERole.CUSTOMER));
-        System.out.println("Roles initialized");
-    }
-
     private User initUsers() {
         // Create admin user
         User adminUser = new User();
@@ -66,8 +64,8 @@ public class MongoDBInitializer implements CommandLineRunner {
         adminUser.setMobile("9876543210");
         adminUser.setEmail("admin@pickupkart.in");
         adminUser.setAddress("PickupKart HQ, Delhi");
-        Set<Role> adminRoles = new HashSet<>();
-        roleRepository.findByName(Role.ERole.ADMIN).ifPresent(adminRoles::add);
+        Set<Role.ERole> adminRoles = new HashSet<>();
+        adminRoles.add(Role.ERole.ADMIN);
         adminUser.setRoles(adminRoles);
         adminUser.onCreate();
         
@@ -79,8 +77,8 @@ public class MongoDBInitializer implements CommandLineRunner {
         customerUser.setMobile("9876543211");
         customerUser.setEmail("user2025@gmail.com");
         customerUser.setAddress("123 Customer Street, Mumbai");
-        Set<Role> customerRoles = new HashSet<>();
-        roleRepository.findByName(Role.ERole.CUSTOMER).ifPresent(customerRoles::add);
+        Set<Role.ERole> customerRoles = new HashSet<>();
+        customerRoles.add(Role.ERole.CUSTOMER);
         customerUser.setRoles(customerRoles);
         customerUser.onCreate();
         
@@ -164,11 +162,11 @@ public class MongoDBInitializer implements CommandLineRunner {
 
     private Order initOrders(User customer, Product smartphone, Courier expressDelivery) {
         Order order = new Order();
-        order.setCustomer(customer);
-        order.setProduct(smartphone);
-        order.setCourier(expressDelivery);
+        order.attachCustomer(customer);
+        order.attachProduct(smartphone);
+        order.attachCourier(expressDelivery);
         order.setQuantity(1);
-        order.setAmount(smartphone.getPrice().add(expressDelivery.getPricePerKm().multiply(new BigDecimal("10"))));
+        order.setAmount(smartphone.getPrice().add(courierQuoteService.deliveryCost(expressDelivery.getId(), 10, 1)));
         order.setStatus(Order.OrderStatus.DELIVERED);
         order.setOrderDate(LocalDateTime.now().minusDays(30));
         order.onCreate();
@@ -181,12 +179,12 @@ public class MongoDBInitializer implements CommandLineRunner {
 
     private void initPayments(Order order) {
         Payment payment = new Payment();
-        payment.setOrder(order);
+        payment.attachOrder(order);
         payment.setPaymentMode(Payment.PaymentMode.CARD);
         payment.setPaymentAmount(order.getAmount());
         payment.setStatus(Payment.PaymentStatus.COMPLETED);
         payment.setPaymentDate(order.getOrderDate());
-        payment.setTransactionId("TXN" + Math.floor(Math.random() * 1000000));
+        payment.setTransactionId(transactionIdGenerator.next());
         payment.onCreate();
         
         paymentRepository.save(payment);
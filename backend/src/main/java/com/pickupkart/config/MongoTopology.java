@@ -0,0 +1,40 @@
+
+package com.pickupkart.config;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+// What the connected deployment supports. Change streams and multi-document transactions need a
+// replica set or a sharded cluster; a standalone server (typical for local runs and tests) has neither.
+@Component
+public class MongoTopology {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile Boolean replicated;
+
+    public boolean supportsTransactions() {
+        return isReplicated();
+    }
+
+    public boolean supportsChangeStreams() {
+        return isReplicated();
+    }
+
+    private boolean isReplicated() {
+        Boolean current = replicated;
+        if (current == null) {
+            try {
+                Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+                current = hello.containsKey("setName") || "isdbgrid".equals(hello.get("msg"));
+            } catch (RuntimeException e) {
+                // Not cached: the server may simply be unreachable right now
+                return false;
+            }
+            replicated = current;
+        }
+        return current;
+    }
+}
@@ -1,128 +1,197 @@
 
 package com.pickupkart.controller;
 
+import com.pickupkart.config.IndexManager;
 import com.pickupkart.model.Role;
 import com.pickupkart.model.User;
 import com.pickupkart.payload.request.LoginRequest;
 import com.pickupkart.payload.request.RegisterRequest;
 import com.pickupkart.payload.response.JwtResponse;
 import com.pickupkart.payload.response.MessageResponse;
-import com.pickupkart.repository.RoleRepository;
 import com.pickupkart.repository.UserRepository;
 import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.ratelimit.LoginRateLimiter;
+import com.pickupkart.security.services.PasswordHashingService;
+import com.pickupkart.security.services.TokenVersionService;
 import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.security.services.UserDetailsServiceImpl;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
     @Autowired
-    AuthenticationManager authenticationManager;
+    UserDetailsServiceImpl userDetailsService;
 
     @Autowired
     UserRepository userRepository;
 
-    @Autowired
-    RoleRepository roleRepository;
-
     @Autowired
     PasswordEncoder passwordEncoder;
 
     @Autowired
     JwtUtils jwtUtils;
 
-    @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getLoginName(), loginRequest.getPassword()));
+    @Autowired
+    PasswordHashingService passwordHashingService;
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
-        
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        
-        JwtResponse response = new JwtResponse(
-            jwt, 
-            userDetails.getId(), 
-            userDetails.getFullName(), 
-            userDetails.getUsername(), 
-            userDetails.getEmail(),
-            userDetails.getMobile(),
-            userDetails.getAddress(),
-            userDetails.getRole()
-        );
-        
-        return ResponseEntity.ok(response);
-    }
+    @Autowired
+    LoginRateLimiter loginRateLimiter;
 
-    @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest) {
-        // Check if username is already taken
-        if (userRepository.existsByLoginName(registerRequest.getLoginName())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Username is already taken!"));
+    @Autowired
+    TokenVersionService tokenVersionService;
+
+    // Checked against for unknown login names, so they take as long as a wrong password; hashed on first use
+    private volatile String unknownUserPassword;
+
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@RequestBody LoginRequest loginRequest,
+                                                                 HttpServletRequest request) {
+        // Throttle before touching the database or spending any BCrypt work. The remote address is the
+        // client's as resolved by Tomcat's RemoteIpValve from trusted proxies only (server.tomcat.remoteip.*)
+        if (!loginRateLimiter.tryAcquire(loginRequest.getLoginName(), request.getRemoteAddr())) {
+            return CompletableFuture.completedFuture(ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(new MessageResponse("Error: Too many login attempts, please try again later.")));
         }
 
-        // Check if email is already in use
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Email is already in use!"));
+        // The user is read on the request thread; the password hashing pool only runs the BCrypt comparison
+        UserDetailsImpl found;
+        try {
+            found = (UserDetailsImpl) userDetailsService.loadUserByUsername(loginRequest.getLoginName());
+        } catch (UsernameNotFoundException e) {
+            found = null;
         }
+        UserDetailsImpl userDetails = found;
+        return submitPasswordTask(() -> {
+            String password = loginRequest.getPassword();
+            boolean matches = password != null && passwordEncoder.matches(password,
+                    userDetails != null ? userDetails.getPassword() : unknownUserPassword());
+            if (userDetails == null || !matches || !userDetails.isEnabled() || !userDetails.isAccountNonLocked()
+                    || !userDetails.isAccountNonExpired() || !userDetails.isCredentialsNonExpired()) {
+                return ResponseEntity
+                        .status(HttpStatus.UNAUTHORIZED)
+                        .body(new MessageResponse("Error: Unauthorized"));
+            }
+
+            Authentication authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            return ResponseEntity.ok(buildJwtResponse(authentication, userDetails));
+        });
+    }
 
-        // Create new user account
-        User user = new User();
-        user.setFullName(registerRequest.getFullName());
-        user.setLoginName(registerRequest.getLoginName());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
-        user.setEmail(registerRequest.getEmail());
-        user.setMobile(registerRequest.getMobile());
-        user.setAddress(registerRequest.getAddress());
-        user.setCreatedAt(LocalDateTime.now());
-        user.setUpdatedAt(LocalDateTime.now());
+    private String unknownUserPassword() {
+        String encoded = unknownUserPassword;
+        if (encoded == null) {
+            encoded = passwordEncoder.encode(UUID.randomUUID().toString());
+            unknownUserPassword = encoded;
+        }
+        return encoded;
+    }
 
+    @PostMapping("/register")
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest registerRequest) {
         // Set user role
-        Set<Role> roles = new HashSet<>();
-        Role userRole;
+        Set<Role.ERole> roles = new HashSet<>();
         
         String requestedRole = registerRequest.getRole();
         if ("ADMIN".equals(requestedRole)) {
-            userRole = roleRepository.findByName(Role.ERole.ADMIN)
-                    .orElseThrow(() -> new RuntimeException("Error: Role ADMIN is not found."));
+            roles.add(Role.ERole.ADMIN);
         } else {
-            userRole = roleRepository.findByName(Role.ERole.CUSTOMER)
-                    .orElseThrow(() -> new RuntimeException("Error: Role CUSTOMER is not found."));
+            roles.add(Role.ERole.CUSTOMER);
         }
-        
-        roles.add(userRole);
-        user.setRoles(roles);
 
-        userRepository.save(user);
+        return submitPasswordTask(() -> {
+            // Create new user account
+            User user = new User();
+            user.setFullName(registerRequest.getFullName());
+            user.setLoginName(registerRequest.getLoginName());
+            user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+            user.setEmail(registerRequest.getEmail());
+            user.setMobile(registerRequest.getMobile());
+            user.setAddress(registerRequest.getAddress());
+            user.setCreatedAt(LocalDateTime.now());
+            user.setUpdatedAt(LocalDateTime.now());
+            user.setRoles(roles);
+
+            // Uniqueness of loginName and email is enforced by their unique indexes: one insert, no pre-checks
+            try {
+                userRepository.insert(user);
+            } catch (DuplicateKeyException e) {
+                return duplicateUserResponse(e);
+            }
+
+            // Issue the token from the saved user; re-authenticating would verify the password we just hashed
+            UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+            Authentication authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+
+            return ResponseEntity.ok(buildJwtResponse(authentication, userDetails));
+        });
+    }
 
-        // Generate token for the newly registered user
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(registerRequest.getLoginName(), registerRequest.getPassword()));
+    // Revokes every token issued to the caller so far, on all devices
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        tokenVersionService.revokeTokens(userDetails.getId());
+        return ResponseEntity.ok(new MessageResponse("Signed out of all sessions."));
+    }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+    private ResponseEntity<?> duplicateUserResponse(DuplicateKeyException e) {
+        String index = IndexManager.violatedIndex(e);
+        if (IndexManager.USER_EMAIL_INDEX.equals(index)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse("Error: Email is already in use!"));
+        }
+        if (IndexManager.USER_LOGIN_NAME_INDEX.equals(index)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse("Error: Username is already taken!"));
+        }
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse("Error: Username or email is already in use!"));
+    }
+
+    private CompletableFuture<ResponseEntity<?>> submitPasswordTask(Supplier<ResponseEntity<?>> task) {
+        try {
+            return passwordHashingService.submit(task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new MessageResponse("Error: Too many authentication requests, please retry shortly.")));
+        }
+    }
+
+    private JwtResponse buildJwtResponse(Authentication authentication, UserDetailsImpl userDetails) {
         String jwt = jwtUtils.generateJwtToken(authentication);
-        
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        
-        JwtResponse response = new JwtResponse(
+
+        return new JwtResponse(
             jwt, 
             userDetails.getId(), 
             userDetails.getFullName(), 
@@ -132,7 +201,5 @@ public class AuthController {
             userDetails.getAddress(),
             userDetails.getRole()
         );
-        
-        return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,66 @@
+
+package com.pickupkart.controller;
+
+import com.pickupkart.payload.response.MessageResponse;
+import com.pickupkart.service.CatalogCache;
+import com.pickupkart.service.CourierQuoteService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/couriers")
+public class CourierController {
+    @Autowired
+    CourierQuoteService courierQuoteService;
+
+    @Autowired
+    CatalogCache catalogCache;
+
+    // Listed couriers for the booking form; includeCustom adds the "Other" entries as well
+    @GetMapping
+    public ResponseEntity<byte[]> getCouriers(@RequestParam(defaultValue = "false") boolean includeCustom,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogResponse(includeCustom ? catalogCache.couriers() : catalogCache.listedCouriers(), ifNoneMatch);
+    }
+
+    // Called as the booking form changes, so it is answered from the in-memory rate table
+    @GetMapping("/quotes")
+    public ResponseEntity<?> quoteAll(@RequestParam double distanceKm,
+                                      @RequestParam(defaultValue = "1") int quantity) {
+        try {
+            return ResponseEntity.ok(courierQuoteService.quoteAll(distanceKm, quantity));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{courierId}/quote")
+    public ResponseEntity<?> quote(@PathVariable String courierId,
+                                   @RequestParam double distanceKm,
+                                   @RequestParam(defaultValue = "1") int quantity) {
+        try {
+            return ResponseEntity.ok(courierQuoteService.quote(courierId, distanceKm, quantity));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Writes the cached bytes as they are; the ETag lets the form revalidate instead of downloading again
+    static ResponseEntity<byte[]> catalogResponse(CatalogCache.Entry entry, String ifNoneMatch) {
+        if (ifNoneMatch != null && (ifNoneMatch.contains(entry.etag()) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.json());
+    }
+}
@@ -0,0 +1,144 @@
+
+package com.pickupkart.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.payload.response.MessageResponse;
+import com.pickupkart.service.ExportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+
+// Finance exports. The body is written from the MVC async executor, so the request thread is freed
+// as soon as the export starts; exports get exports.async-timeout-ms, other async requests keep the
+// default timeout. Handlers return ResponseEntity<StreamingResponseBody> (not <?>), which is
+// what routes the body to the streaming handler instead of the message converters.
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/exports")
+@PreAuthorize("hasRole('ADMIN')")
+public class ExportController {
+    private static final String PERMIT_INTERCEPTOR = ExportController.class.getName() + ".permit";
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${exports.async-timeout-ms:3600000}")
+    long asyncTimeoutMillis;
+
+    // from/to are inclusive days, e.g. from=2024-05-01&to=2024-05-31 for May
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "CSV") ExportService.Format format,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) Order.OrderStatus status,
+                                          @RequestParam(defaultValue = "false") boolean gzip,
+                                          HttpServletRequest request) {
+        String statusName = status != null ? status.name() : null;
+        return stream(request, "orders", format, gzip, out -> exportService.exportOrders(
+                format, startOf(from), endOf(to), statusName, gzip, out));
+    }
+
+    @GetMapping("/payments")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam(defaultValue = "CSV") ExportService.Format format,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(required = false) Payment.PaymentStatus status,
+                                            @RequestParam(defaultValue = "false") boolean gzip,
+                                            HttpServletRequest request) {
+        String statusName = status != null ? status.name() : null;
+        return stream(request, "payments", format, gzip, out -> exportService.exportPayments(
+                format, startOf(from), endOf(to), statusName, gzip, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String name, ExportService.Format format, boolean gzip,
+                                     StreamingResponseBody body) {
+        ExportService.Permit permit = exportService.tryAcquire();
+        if (permit == null) {
+            MessageResponse message = new MessageResponse("Error: Too many exports are running, please try again later.");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, message));
+        }
+
+        String fileName = name + "-" + LocalDate.now() + (format == ExportService.Format.CSV ? ".csv" : ".ndjson")
+                + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == ExportService.Format.CSV ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        // The body may never run: the async request can time out or fail while it waits for an executor
+        // thread, or the task can be rejected. Release on however the async request ends, as well as
+        // after writing; the permit only counts the first release.
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(PERMIT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    // Runs after the async manager applied the default timeout and before the request goes async
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(asyncTimeoutMillis);
+                        }
+                    }
+
+                    @Override
+                    public <T> Object handleTimeout(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.release();
+                        return RESULT_NONE;
+                    }
+
+                    @Override
+                    public <T> Object handleError(NativeWebRequest webRequest, Callable<T> task, Throwable t) {
+                        permit.release();
+                        return RESULT_NONE;
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.release();
+                    }
+                });
+        StreamingResponseBody guarded = out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                permit.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName).build().toString())
+                .body(guarded);
+    }
+
+    private static LocalDateTime startOf(LocalDate day) {
+        return day != null ? day.atStartOfDay() : null;
+    }
+
+    private static LocalDateTime endOf(LocalDate day) {
+        return day != null ? day.plusDays(1).atStartOfDay() : null;
+    }
+}
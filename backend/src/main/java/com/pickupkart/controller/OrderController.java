@@ -0,0 +1,180 @@
+
+package com.pickupkart.controller;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.payload.request.BulkOrderStatusRequest;
+import com.pickupkart.payload.request.OrderStatusRequest;
+import com.pickupkart.payload.request.PlaceOrderRequest;
+import com.pickupkart.payload.response.CursorPage;
+import com.pickupkart.payload.response.MessageResponse;
+import com.pickupkart.payload.response.OrderTransitionResult;
+import com.pickupkart.repository.OrderRepository;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.service.CheckoutService;
+import com.pickupkart.service.KeysetCursor;
+import com.pickupkart.service.OrderIngestionService;
+import com.pickupkart.service.OrderService;
+import com.pickupkart.service.OrderTrackingHub;
+import com.pickupkart.service.OrderTransitionService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/orders")
+public class OrderController {
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderTransitionService orderTransitionService;
+
+    @Autowired
+    OrderIngestionService orderIngestionService;
+
+    @Autowired
+    CheckoutService checkoutService;
+
+    @Autowired
+    OrderTrackingHub orderTrackingHub;
+
+    @PostMapping
+    public ResponseEntity<?> placeOrder(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                        @RequestBody PlaceOrderRequest request) {
+        try {
+            return ResponseEntity.ok(orderService.placeOrder(userDetails.getId(), request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Places the order and opens its PENDING payment in one step
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                      @RequestBody PlaceOrderRequest request) {
+        try {
+            return ResponseEntity.ok(checkoutService.checkout(userDetails.getId(), request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Live status changes of the signed-in customer's orders as Server-Sent Events; a reconnecting
+    // client sends Last-Event-ID and receives what it missed first, or a "resync" event when it missed
+    // too many and should re-fetch its orders
+    @GetMapping("/stream")
+    public ResponseEntity<?> streamMyOrders(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        try {
+            return ResponseEntity.ok(orderTrackingHub.subscribe(userDetails.getId(), lastEventId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/stream/all")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> streamAllOrders(@RequestParam(required = false) String customerId,
+                                             @RequestParam(required = false) Set<String> status,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        try {
+            return ResponseEntity.ok(orderTrackingHub.subscribeAll(customerId, status, lastEventId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Orders of the signed-in customer, newest first
+    @GetMapping("/my")
+    public ResponseEntity<?> getMyOrders(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        List<Order> orders = orderRepository.findPageByCustomerId(userDetails.getId(), after, limit + 1);
+        return ResponseEntity.ok(CursorPage.of(orders, limit, OrderController::cursorOf));
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getOrdersByStatus(@RequestParam Order.OrderStatus status,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        List<Order> orders = orderRepository.findPageByStatus(status, after, limit + 1);
+        return ResponseEntity.ok(CursorPage.of(orders, limit, OrderController::cursorOf));
+    }
+
+    // Partner batches: one order per NDJSON line, each with an idempotencyKey; answered with a result per line
+    @PostMapping(value = "/ingest", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> ingestOrders(@AuthenticationPrincipal UserDetailsImpl userDetails, InputStream body) {
+        try {
+            return ResponseEntity.ok(orderIngestionService.ingest(userDetails.getId(), body));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Could not read the order batch."));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @PatchMapping("/{orderId}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateStatus(@PathVariable String orderId, @RequestBody OrderStatusRequest request) {
+        OrderTransitionResult result;
+        try {
+            result = orderTransitionService.transition(orderId, request.getFrom(), request.getTo(), request.getVersion());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        return switch (result.getOutcome()) {
+            case APPLIED -> ResponseEntity.ok(result);
+            case CONFLICT, ALREADY_IN_STATE -> ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case ILLEGAL -> ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: Order cannot move from " + result.getStatus() + " to " + request.getTo() + "."));
+        };
+    }
+
+    // One request for a whole batch (e.g. PENDING -> CONFIRMED for a shift), with a result per order
+    @PostMapping("/status/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateStatuses(@RequestBody BulkOrderStatusRequest request) {
+        try {
+            return ResponseEntity.ok(orderTransitionService.transitionAll(request.getOrderIds(), request.getFrom(), request.getTo()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    static KeysetCursor cursorOf(Order order) {
+        return new KeysetCursor(order.getOrderDate(), order.getId());
+    }
+}
@@ -0,0 +1,207 @@
+
+package com.pickupkart.controller;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.payload.request.InitiatePaymentRequest;
+import com.pickupkart.payload.request.PaymentCaptureRequest;
+import com.pickupkart.payload.response.CursorPage;
+import com.pickupkart.payload.response.MessageResponse;
+import com.pickupkart.repository.OrderRepository;
+import com.pickupkart.repository.PaymentRepository;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.service.KeysetCursor;
+import com.pickupkart.service.PaymentCaptureService;
+import com.pickupkart.service.PaymentHistoryService;
+import com.pickupkart.service.ReceiptService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/payments")
+public class PaymentController {
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    PaymentHistoryService paymentHistoryService;
+
+    @Autowired
+    ReceiptService receiptService;
+
+    @Autowired
+    PaymentCaptureService paymentCaptureService;
+
+    // Creates the PENDING payment for an order (or returns the open one) with its gateway transaction id
+    @PostMapping
+    public ResponseEntity<?> initiatePayment(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                             @RequestBody InitiatePaymentRequest request) {
+        try {
+            return ResponseEntity.ok(paymentCaptureService.initiate(userDetails.getId(),
+                    "ADMIN".equals(userDetails.getRole()), request.getOrderId(), request.getPaymentMode()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Gateway callback, authenticated by its signature instead of a JWT; safe to retry
+    @PostMapping("/capture")
+    public ResponseEntity<?> capturePayment(@RequestHeader(value = "X-Gateway-Signature", required = false) String signature,
+                                            @RequestBody PaymentCaptureRequest request) {
+        if (!paymentCaptureService.verifySignature(request.getTransactionId(), request.getStatus(), signature)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse("Error: Invalid signature."));
+        }
+        try {
+            return ResponseEntity.ok(paymentCaptureService.capture(request.getTransactionId(), request.getStatus()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Payments of the signed-in customer, newest first
+    @GetMapping("/my")
+    public ResponseEntity<?> getMyPayments(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        List<Payment> payments = paymentRepository.findPageByCustomerId(userDetails.getId(), after, limit + 1);
+        return ResponseEntity.ok(CursorPage.of(payments, limit, PaymentController::cursorOf));
+    }
+
+    // Payment history screen: one aggregation round trip per page, paged by order date
+    @GetMapping("/history")
+    public ResponseEntity<?> getPaymentHistory(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        return ResponseEntity.ok(paymentHistoryService.findPage(userDetails.getId(), after, CursorPage.clampSize(size)));
+    }
+
+    // Downloadable receipt; served from the receipt cache with a strong ETag so repeat downloads can be a 304.
+    // Ownership is checked first, so other customers' payment ids never cause a load, render or cache entry.
+    @GetMapping("/{paymentId}/receipt")
+    public ResponseEntity<?> getReceipt(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                        @PathVariable String paymentId,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean isAdmin = "ADMIN".equals(userDetails.getRole());
+        if (!isAdmin) {
+            Optional<String> owner = receiptService.findCustomerId(paymentId);
+            if (owner.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (!userDetails.getId().equals(owner.get())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(new MessageResponse("Error: You are not allowed to view this receipt."));
+            }
+        }
+
+        Optional<ReceiptService.Receipt> receipt = receiptService.getReceipt(paymentId);
+        if (receipt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = receipt.get().etag();
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(receipt.get().fileName()).build().toString())
+                .body(receipt.get().content());
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getPaymentsByStatus(@RequestParam Payment.PaymentStatus status,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        List<Payment> payments = paymentRepository.findPageByStatus(status, after, limit + 1);
+        return ResponseEntity.ok(CursorPage.of(payments, limit, PaymentController::cursorOf));
+    }
+
+    // Pages over the orders in the given status and returns their payments; the cursor refers to orders
+    @GetMapping("/by-order-status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getPaymentsByOrderStatus(@RequestParam Order.OrderStatus status,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        CursorPage<Order> orders = CursorPage.of(
+                orderRepository.findPageByStatus(status, after, limit + 1), limit, OrderController::cursorOf);
+        List<String> orderIds = orders.getItems().stream().map(Order::getId).collect(Collectors.toList());
+        List<Payment> payments = orderIds.isEmpty() ? List.of() : paymentRepository.findByOrderIdIn(orderIds);
+        return ResponseEntity.ok(new CursorPage<>(payments, orders.getNextCursor(), orders.isHasMore()));
+    }
+
+    // If-None-Match is "*" or a comma-separated list of entity-tags, compared weakly (W/ ignored) as RFC 9110 requires
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (opaqueTag.equals(opaqueTag(candidate.trim()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    static KeysetCursor cursorOf(Payment payment) {
+        return new KeysetCursor(payment.getPaymentDate(), payment.getId());
+    }
+}
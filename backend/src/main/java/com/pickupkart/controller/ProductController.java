@@ -0,0 +1,44 @@
+
+package com.pickupkart.controller;
+
+import com.pickupkart.payload.response.CursorPage;
+import com.pickupkart.service.CatalogCache;
+import com.pickupkart.service.ProductSearchIndex;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/products")
+public class ProductController {
+    @Autowired
+    CatalogCache catalogCache;
+
+    @Autowired
+    ProductSearchIndex productSearchIndex;
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    // Served as pre-encoded JSON from the catalog cache
+    @GetMapping
+    public ResponseEntity<byte[]> getProducts(@RequestParam(defaultValue = "false") boolean inStock,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CourierController.catalogResponse(inStock ? catalogCache.productsInStock() : catalogCache.products(), ifNoneMatch);
+    }
+
+    // Ranked search over name and description; every word must match a term exactly, by prefix or inside it
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productSearchIndex.search(q, Math.max(0, page), CursorPage.clampSize(size)));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String q, @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productSearchIndex.suggest(q, Math.max(1, Math.min(limit, MAX_SUGGESTIONS))));
+    }
+}
@@ -0,0 +1,34 @@
+package com.pickupkart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Stock of a hot product taken from MongoDB by one node's in-memory front. units counts what was leased
+// and not yet returned; the reservations carrying this lease id are the part of it that was sold.
+@Data
+@Document(collection = "inventory_leases")
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryLease {
+    @Id
+    private String id;
+    
+    private String productId;
+    
+    // The process holding the lease, for diagnostics
+    private String owner;
+    
+    private Long units;
+    
+    // Renewed by the owner; a lease left without heartbeat is reconciled by any node
+    @Indexed
+    private LocalDateTime heartbeatAt;
+    
+    private LocalDateTime createdAt;
+}
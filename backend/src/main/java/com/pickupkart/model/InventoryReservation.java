@@ -0,0 +1,55 @@
+
+package com.pickupkart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "inventory_reservations")
+@CompoundIndex(name = "status_expiresAt", def = "{ 'status': 1, 'expiresAt': 1 }")
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReservation {
+    @Id
+    private String id;
+    
+    @Indexed(unique = true)
+    private String orderId;
+    
+    private String productId;
+    
+    private Integer quantity;
+    
+    // Set when the stock came from a hot product's in-memory lease (see InventoryLease)
+    @Indexed(sparse = true)
+    private String leaseId;
+    
+    private ReservationStatus status;
+    
+    // Stock held for a PENDING order is released if the order is not paid by then
+    private LocalDateTime expiresAt;
+    
+    // Timestamps
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    
+    public void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+    
+    public void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public enum ReservationStatus {
+        HELD, COMMITTED, RELEASED
+    }
+}
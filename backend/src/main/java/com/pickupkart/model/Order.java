@@ -1,11 +1,16 @@
 
 package com.pickupkart.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Value;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -13,20 +18,32 @@ import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "orders")
+@CompoundIndexes({
+    @CompoundIndex(name = "customer_orderDate_id", def = "{ 'customerId': 1, 'orderDate': -1, '_id': -1 }"),
+    @CompoundIndex(name = "status_orderDate_id", def = "{ 'status': 1, 'orderDate': -1, '_id': -1 }")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
     @Id
     private String id;
     
-    @DBRef
-    private User customer;
+    // Reference ids used for querying; the snapshots below are what order reads render
+    // (customerId is covered by the customer_orderDate_id compound index)
+    private String customerId;
     
-    @DBRef
-    private Product product;
+    @Indexed
+    private String productId;
     
-    @DBRef
-    private Courier courier;
+    @Indexed
+    private String courierId;
+    
+    // Denormalized copies taken when the order is placed, so listing orders needs no extra lookups
+    private CustomerSnapshot customer;
+    
+    private ProductSnapshot product;
+    
+    private CourierSnapshot courier;
     
     private Integer quantity;
     
@@ -42,6 +59,18 @@ public class Order {
     
     private LocalDateTime deliveryDate;
     
+    // Bumped by every write, including the conditional status transitions of OrderTransitionService
+    @Version
+    private Long version;
+    
+    // Id of the bulk status update that last moved the order; tells that update which orders it moved itself
+    @JsonIgnore
+    private String transitionId;
+    
+    // Set on orders pushed by partners ("<partner user id>:<partner key>"), so a retried batch is not stored twice
+    @Indexed(unique = true, sparse = true)
+    private String idempotencyKey;
+    
     // Timestamps
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -58,7 +87,68 @@ public class Order {
         this.updatedAt = LocalDateTime.now();
     }
     
+    public void attachCustomer(User customer) {
+        this.customerId = customer.getId();
+        this.customer = CustomerSnapshot.of(customer);
+    }
+    
+    public void attachProduct(Product product) {
+        this.productId = product.getId();
+        this.product = ProductSnapshot.of(product);
+    }
+    
+    public void attachCourier(Courier courier) {
+        attachCourier(CourierSnapshot.of(courier));
+    }
+    
+    public void attachCourier(CourierSnapshot courier) {
+        this.courierId = courier.getId();
+        this.courier = courier;
+    }
+    
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+        
+        // DELIVERED and CANCELLED are terminal; an order can be cancelled until it is delivered
+        public boolean canTransitionTo(OrderStatus target) {
+            return switch (this) {
+                case PENDING -> target == CONFIRMED || target == CANCELLED;
+                case CONFIRMED -> target == SHIPPED || target == CANCELLED;
+                case SHIPPED -> target == DELIVERED || target == CANCELLED;
+                case DELIVERED, CANCELLED -> false;
+            };
+        }
+    }
+    
+    @Value
+    public static class CustomerSnapshot {
+        String id;
+        String fullName;
+        
+        public static CustomerSnapshot of(User user) {
+            return new CustomerSnapshot(user.getId(), user.getFullName());
+        }
+    }
+    
+    @Value
+    public static class ProductSnapshot {
+        String id;
+        String name;
+        BigDecimal unitPrice;
+        
+        public static ProductSnapshot of(Product product) {
+            return new ProductSnapshot(product.getId(), product.getName(), product.getPrice());
+        }
+    }
+    
+    @Value
+    public static class CourierSnapshot {
+        String id;
+        String name;
+        BigDecimal pricePerKm;
+        
+        public static CourierSnapshot of(Courier courier) {
+            return new CourierSnapshot(courier.getId(), courier.getName(), courier.getPricePerKm());
+        }
     }
 }
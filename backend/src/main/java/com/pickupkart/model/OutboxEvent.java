@@ -0,0 +1,77 @@
+
+package com.pickupkart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// An order or payment change waiting to be dispatched to subscribers. Events are written next to the
+// change they describe (in the same transaction where there is one) and dispatched in _id order, except
+// that one order's events go out in sequence order.
+@Data
+@Document(collection = "order_events")
+@CompoundIndexes({
+    @CompoundIndex(name = "state_id", def = "{ 'state': 1, '_id': 1 }"),
+    @CompoundIndex(name = "customer_id", def = "{ 'customerId': 1, '_id': 1 }"),
+    @CompoundIndex(name = "orderId_state_sequence", def = "{ 'orderId': 1, 'state': 1, 'sequence': 1 }")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    private String id;
+    
+    // Events of one order are delivered in the order they were written
+    private String orderId;
+    
+    private String customerId;
+    
+    private EventType type;
+    
+    // The order or payment that changed
+    private String subjectId;
+    
+    // New order or payment status, by name
+    private String status;
+    
+    // Order version after the change, when known
+    private Long version;
+    
+    // Position among the events of the same order, from 1 without gaps (see OrderEventOutbox); null on
+    // events written before sequences existed
+    private Long sequence;
+    
+    private State state;
+    
+    private Integer attempts;
+    
+    private LocalDateTime nextAttemptAt;
+    
+    private String lastError;
+    
+    // Dispatched events are kept for a week for replay and auditing
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime dispatchedAt;
+    
+    // Timestamps
+    private LocalDateTime createdAt;
+    
+    public void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public enum EventType {
+        ORDER_PLACED, ORDER_STATUS_CHANGED, PAYMENT_CREATED, PAYMENT_STATUS_CHANGED
+    }
+    
+    public enum State {
+        PENDING, DISPATCHED, PARKED
+    }
+}
@@ -5,6 +5,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,15 +17,26 @@ import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "payments")
+@CompoundIndexes({
+    @CompoundIndex(name = "customer_paymentDate_id", def = "{ 'customerId': 1, 'paymentDate': -1, '_id': -1 }"),
+    @CompoundIndex(name = "status_paymentDate_id", def = "{ 'status': 1, 'paymentDate': -1, '_id': -1 }")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Payment {
     @Id
     private String id;
     
-    @DBRef
+    // Loaded only when accessed; list and history reads use orderId/customerId instead
+    @JsonIgnore
+    @DBRef(lazy = true)
     private Order order;
     
+    @Indexed
+    private String orderId;
+    
+    private String customerId;
+    
     private PaymentMode paymentMode;
     
     private BigDecimal paymentAmount;
@@ -30,6 +45,7 @@ public class Payment {
     
     private LocalDateTime paymentDate;
     
+    @Indexed(unique = true, sparse = true)
     private String transactionId;
     
     // Timestamps
@@ -48,6 +64,12 @@ public class Payment {
         this.updatedAt = LocalDateTime.now();
     }
     
+    public void attachOrder(Order order) {
+        this.order = order;
+        this.orderId = order.getId();
+        this.customerId = order.getCustomerId();
+    }
+    
     public enum PaymentMode {
         UPI, CARD, CASH
     }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -18,12 +19,14 @@ public class Product {
     @Id
     private String id;
     
+    @Indexed
     private String name;
     
     private String description;
     
     private BigDecimal price;
     
+    @Indexed
     private Integer quantity;
     
     private String imageUrl;
@@ -1,13 +1,13 @@
 
 package com.pickupkart.model;
 
+import com.pickupkart.config.IndexManager;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -23,20 +23,23 @@ public class User {
     
     private String fullName;
     
-    @Indexed(unique = true)
+    @Indexed(name = IndexManager.USER_LOGIN_NAME_INDEX, unique = true)
     private String loginName;
     
     private String password;
     
     private String mobile;
     
-    @Indexed(unique = true)
+    @Indexed(name = IndexManager.USER_EMAIL_INDEX, unique = true)
     private String email;
     
     private String address;
     
-    @DBRef
-    private Set<Role> roles = new HashSet<>();
+    // Stored as role names; legacy DBRef entries are resolved through RoleRegistry on read
+    private Set<Role.ERole> roles = new HashSet<>();
+    
+    // Bumped to revoke all self-contained tokens issued to this user
+    private Integer tokenVersion = 0;
     
     // Timestamps
     private LocalDateTime createdAt;
@@ -0,0 +1,14 @@
+
+package com.pickupkart.payload.request;
+
+import com.pickupkart.model.Order;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOrderStatusRequest {
+    private List<String> orderIds;
+    private Order.OrderStatus from;
+    private Order.OrderStatus to;
+}
@@ -0,0 +1,17 @@
+
+package com.pickupkart.payload.request;
+
+import lombok.Data;
+
+// One NDJSON line of a partner order batch
+@Data
+public class IngestOrderLine {
+    private String idempotencyKey;
+    // Optional: the partner account itself is the customer when absent
+    private String customerId;
+    private String productId;
+    private String courierId;
+    private Integer quantity;
+    private Double distanceKm;
+    private String customCourierName;
+}
@@ -0,0 +1,11 @@
+
+package com.pickupkart.payload.request;
+
+import com.pickupkart.model.Payment;
+import lombok.Data;
+
+@Data
+public class InitiatePaymentRequest {
+    private String orderId;
+    private Payment.PaymentMode paymentMode;
+}
@@ -0,0 +1,13 @@
+
+package com.pickupkart.payload.request;
+
+import com.pickupkart.model.Order;
+import lombok.Data;
+
+@Data
+public class OrderStatusRequest {
+    // Optional: when set, the order must still be in this status (and version) for the move to apply
+    private Order.OrderStatus from;
+    private Order.OrderStatus to;
+    private Long version;
+}
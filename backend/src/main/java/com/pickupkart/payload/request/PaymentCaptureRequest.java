@@ -0,0 +1,12 @@
+
+package com.pickupkart.payload.request;
+
+import com.pickupkart.model.Payment;
+import lombok.Data;
+
+// Gateway callback; status is COMPLETED or FAILED
+@Data
+public class PaymentCaptureRequest {
+    private String transactionId;
+    private Payment.PaymentStatus status;
+}
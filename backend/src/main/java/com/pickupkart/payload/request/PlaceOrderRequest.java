@@ -0,0 +1,18 @@
+
+package com.pickupkart.payload.request;
+
+import com.pickupkart.model.Payment;
+import lombok.Data;
+
+@Data
+public class PlaceOrderRequest {
+    private String productId;
+    private String courierId;
+    private Integer quantity;
+    // Delivery distance used for the courier quote; the flat default distance when absent
+    private Double distanceKm;
+    private String customCourierName;
+    private String productImagePath;
+    // Only used by checkout, which records the PENDING payment with the order; UPI when absent
+    private Payment.PaymentMode paymentMode;
+}
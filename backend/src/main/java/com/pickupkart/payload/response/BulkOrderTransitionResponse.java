@@ -0,0 +1,15 @@
+
+package com.pickupkart.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkOrderTransitionResponse {
+    private int applied;
+    private int failed;
+    private List<OrderTransitionResult> results;
+}
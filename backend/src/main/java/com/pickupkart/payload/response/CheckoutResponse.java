@@ -0,0 +1,15 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CheckoutResponse {
+    private Order order;
+    // PENDING; its transaction id is handed to the payment gateway
+    private Payment payment;
+}
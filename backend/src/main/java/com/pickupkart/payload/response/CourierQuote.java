@@ -0,0 +1,18 @@
+
+package com.pickupkart.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class CourierQuote {
+    private String courierId;
+    private String courierName;
+    // Distance actually charged: the ceiling of the distance band the trip falls into
+    private long chargedKm;
+    private int quantity;
+    private BigDecimal amount;
+}
@@ -0,0 +1,39 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.service.KeysetCursor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+public class CursorPage<T> {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public CursorPage(List<T> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public static int clampSize(Integer size) {
+        if (size == null || size < 1) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    // Builds a page from a query that fetched up to limit + 1 rows; the extra row only signals hasMore
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, KeysetCursor> cursorOf) {
+        boolean hasMore = fetched.size() > limit;
+        List<T> items = hasMore ? fetched.subList(0, limit) : fetched;
+        String nextCursor = hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+}
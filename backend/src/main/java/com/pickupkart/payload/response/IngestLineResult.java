@@ -0,0 +1,19 @@
+
+package com.pickupkart.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IngestLineResult {
+    private int line;
+    private String idempotencyKey;
+    private Outcome outcome;
+    private String orderId;
+    private String error;
+
+    public enum Outcome {
+        CREATED, DUPLICATE, INVALID, OUT_OF_STOCK
+    }
+}
@@ -0,0 +1,16 @@
+
+package com.pickupkart.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IngestReport {
+    private int created;
+    private int duplicates;
+    private int rejected;
+    private List<IngestLineResult> results;
+}
@@ -0,0 +1,25 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.OutboxEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class OrderTrackingEvent {
+    private String orderId;
+    private OutboxEvent.EventType type;
+    // The order or payment that changed
+    private String subjectId;
+    private String status;
+    private Long version;
+    private LocalDateTime at;
+
+    public static OrderTrackingEvent of(OutboxEvent event) {
+        return new OrderTrackingEvent(event.getOrderId(), event.getType(), event.getSubjectId(), event.getStatus(),
+                event.getVersion(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,20 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderTransitionResult {
+    private String orderId;
+    private Outcome outcome;
+    // Status (and version, where known) of the order after the attempt
+    private Order.OrderStatus status;
+    private Long version;
+
+    public enum Outcome {
+        APPLIED, ALREADY_IN_STATE, CONFLICT, NOT_FOUND, ILLEGAL
+    }
+}
@@ -0,0 +1,15 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PaymentCaptureResponse {
+    private String transactionId;
+    private Payment.PaymentStatus status;
+    // True when the transaction had already been settled by an earlier callback
+    private boolean duplicate;
+}
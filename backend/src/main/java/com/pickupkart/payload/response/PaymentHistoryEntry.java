@@ -0,0 +1,23 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One row of the customer PaymentHistory page
+@Data
+@AllArgsConstructor
+public class PaymentHistoryEntry {
+    private String paymentId;
+    private String orderId;
+    private String productName;
+    private Payment.PaymentMode paymentMode;
+    private BigDecimal paymentAmount;
+    private Payment.PaymentStatus status;
+    private LocalDateTime paymentDate;
+    private String transactionId;
+}
@@ -0,0 +1,17 @@
+
+package com.pickupkart.payload.response;
+
+import com.pickupkart.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ProductSearchPage {
+    private List<Product> items;
+    private int total;
+    private int page;
+    private int size;
+}
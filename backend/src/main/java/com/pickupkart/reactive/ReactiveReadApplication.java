@@ -0,0 +1,30 @@
+
+package com.pickupkart.reactive;
+
+import com.pickupkart.repository.ReactiveProductRepository;
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.services.TokenVersionService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+// Reactive (WebFlux + reactive MongoDB) variant of the high fan-out read APIs: product catalog, courier
+// list and a customer's order history, on the same paths as the MVC application. It is started as its
+// own process next to it (profile "reactive", port 8081 by default), shares the models and validates
+// the same JWTs, revocation included, so the two stacks can be compared under identical load.
+@SpringBootApplication(exclude = {MongoRepositoriesAutoConfiguration.class, ReactiveUserDetailsServiceAutoConfiguration.class})
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveProductRepository.class)
+@Import({JwtUtils.class, TokenVersionService.class})
+public class ReactiveReadApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactiveReadApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setAdditionalProfiles("reactive");
+        application.run(args);
+    }
+}
@@ -0,0 +1,23 @@
+package com.pickupkart.reactive.controller;
+
+import com.pickupkart.model.Courier;
+import com.pickupkart.repository.ReactiveCourierRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/couriers")
+public class ReactiveCourierController {
+    @Autowired
+    ReactiveCourierRepository courierRepository;
+
+    // Listed couriers for the booking form; includeCustom adds the "Other" entries as well
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Courier> getCouriers(@RequestParam(defaultValue = "false") boolean includeCustom) {
+        return includeCustom ? courierRepository.findAll() : courierRepository.findByIsCustomNot(true);
+    }
+}
@@ -0,0 +1,52 @@
+package com.pickupkart.reactive.controller;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.payload.response.CursorPage;
+import com.pickupkart.payload.response.MessageResponse;
+import com.pickupkart.repository.ReactiveOrderRepository;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.service.KeysetCursor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/orders")
+public class ReactiveOrderController {
+    @Autowired
+    ReactiveOrderRepository orderRepository;
+
+    // Orders of the signed-in customer, newest first, paged exactly like the MVC endpoint
+    @GetMapping(value = "/my", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> getMyOrders(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(new MessageResponse(e.getMessage())));
+        }
+
+        int limit = CursorPage.clampSize(size);
+        return orderRepository.findPageByCustomerId(userDetails.getId(), after, limit + 1)
+                .collectList()
+                .map(orders -> ResponseEntity.ok(CursorPage.of(orders, limit, ReactiveOrderController::cursorOf)));
+    }
+
+    // The whole history as application/x-ndjson, streamed with backpressure instead of paged
+    @GetMapping(value = "/my", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Order> streamMyOrders(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return orderRepository.findByCustomerIdOrderByOrderDateDescIdDesc(userDetails.getId());
+    }
+
+    private static KeysetCursor cursorOf(Order order) {
+        return new KeysetCursor(order.getOrderDate(), order.getId());
+    }
+}
@@ -0,0 +1,25 @@
+package com.pickupkart.reactive.controller;
+
+import com.pickupkart.model.Product;
+import com.pickupkart.repository.ReactiveProductRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/products")
+public class ReactiveProductController {
+    @Autowired
+    ReactiveProductRepository productRepository;
+
+    // Same body as the MVC catalog, written as the cursor is read; application/x-ndjson streams one product per line
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Product> getProducts(@RequestParam(defaultValue = "false") boolean inStock) {
+        Sort byName = Sort.by("name");
+        return inStock ? productRepository.findByQuantityGreaterThan(0, byName) : productRepository.findAllBy(byName);
+    }
+}
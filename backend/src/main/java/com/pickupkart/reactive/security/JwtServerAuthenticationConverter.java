@@ -0,0 +1,111 @@
+
+package com.pickupkart.reactive.security;
+
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.services.TokenVersionService;
+import com.pickupkart.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import com.mongodb.DBRef;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The reactive counterpart of AuthTokenFilter: the same JwtUtils checks signature, expiry and revocation.
+// Principals come from self-contained tokens; other tokens are resolved with a non-blocking user read.
+@Component
+public class JwtServerAuthenticationConverter implements ServerAuthenticationConverter {
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        String headerAuth = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (!StringUtils.hasText(headerAuth) || !headerAuth.startsWith("Bearer ")) {
+            return Mono.empty();
+        }
+        Claims claims = jwtUtils.parseJwtClaims(headerAuth.substring(7));
+        if (claims == null) {
+            return Mono.empty();
+        }
+        return principal(claims)
+                .map(userDetails -> new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    private Mono<UserDetailsImpl> principal(Claims claims) {
+        String userId = claims.get(JwtUtils.CLAIM_USER_ID, String.class);
+        if (userId == null) {
+            return loadByLoginName(claims.getSubject());
+        }
+        Mono<UserDetailsImpl> fromClaims = Mono.fromCallable(() -> jwtUtils.getUserDetailsFromJwtClaims(claims));
+        // The revocation check reads the token version from MongoDB when it is not in memory, and that read
+        // blocks: it moves off the event loop then. Usually the version is cached and this stays inline.
+        if (tokenVersionService.cachedVersion(userId) == null) {
+            fromClaims = fromClaims.subscribeOn(Schedulers.boundedElastic());
+        }
+        return fromClaims.switchIfEmpty(Mono.defer(() -> loadByLoginName(claims.getSubject())));
+    }
+
+    private Mono<UserDetailsImpl> loadByLoginName(String loginName) {
+        Query query = new Query(Criteria.where("loginName").is(loginName));
+        query.fields().include("roles");
+        return reactiveMongoTemplate.findOne(query, Document.class, "users")
+                .flatMap(user -> roleNames(user.getList("roles", Object.class, List.of()))
+                        .map(names -> {
+                            List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+                            names.forEach(name -> authorities.add(new SimpleGrantedAuthority("ROLE_" + name)));
+                            return new UserDetailsImpl(idOf(user.get("_id")), null, loginName, null, null, null, null, authorities);
+                        }));
+    }
+
+    // Roles are stored by name; legacy DBRef entries are looked up in the roles collection
+    private Mono<List<String>> roleNames(List<Object> roles) {
+        List<String> names = new ArrayList<>(roles.size());
+        List<Object> roleIds = new ArrayList<>();
+        for (Object role : roles) {
+            if (role instanceof DBRef ref) {
+                roleIds.add(ref.getId());
+            } else if (role != null) {
+                names.add(role.toString());
+            }
+        }
+        if (roleIds.isEmpty()) {
+            return Mono.just(names);
+        }
+        Query query = new Query(Criteria.where("_id").in(roleIds));
+        query.fields().include("name");
+        return reactiveMongoTemplate.find(query, Document.class, "roles")
+                .map(role -> role.getString("name"))
+                .collectList()
+                .map(resolved -> {
+                    names.addAll(resolved);
+                    return names;
+                });
+    }
+
+    private static String idOf(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+}
@@ -0,0 +1,13 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.InventoryReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface InventoryReservationRepository extends MongoRepository<InventoryReservation, String> {
+    Optional<InventoryReservation> findByOrderId(String orderId);
+}
@@ -0,0 +1,28 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.service.KeysetCursor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+// Shared (date desc, _id desc) keyset query building for the paged repository methods
+final class KeysetQueries {
+
+    private KeysetQueries() {
+    }
+
+    static Query pageQuery(Criteria filter, String dateField, KeysetCursor after, int limit) {
+        Criteria criteria = filter;
+        if (after != null) {
+            criteria = new Criteria().andOperator(filter, new Criteria().orOperator(
+                    Criteria.where(dateField).lt(after.date()),
+                    new Criteria().andOperator(
+                            Criteria.where(dateField).is(after.date()),
+                            Criteria.where("_id").lt(after.id()))));
+        }
+        return new Query(criteria)
+                .with(Sort.by(Sort.Order.desc(dateField), Sort.Order.desc("_id")))
+                .limit(limit);
+    }
+}
@@ -0,0 +1,14 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.service.KeysetCursor;
+
+import java.util.List;
+
+// Keyset-paged order reads, newest first; pass null as cursor for the first page
+public interface OrderRepositoryCustom {
+    List<Order> findPageByCustomerId(String customerId, KeysetCursor after, int limit);
+    
+    List<Order> findPageByStatus(Order.OrderStatus status, KeysetCursor after, int limit);
+}
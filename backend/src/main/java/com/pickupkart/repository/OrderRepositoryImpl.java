@@ -0,0 +1,30 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.service.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Order> findPageByCustomerId(String customerId, KeysetCursor after, int limit) {
+        return mongoTemplate.find(
+                KeysetQueries.pageQuery(Criteria.where("customerId").is(customerId), "orderDate", after, limit),
+                Order.class);
+    }
+
+    @Override
+    public List<Order> findPageByStatus(Order.OrderStatus status, KeysetCursor after, int limit) {
+        return mongoTemplate.find(
+                KeysetQueries.pageQuery(Criteria.where("status").is(status), "orderDate", after, limit),
+                Order.class);
+    }
+}
@@ -8,19 +8,26 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends MongoRepository<Payment, String> {
+public interface PaymentRepository extends MongoRepository<Payment, String>, PaymentRepositoryCustom {
     Optional<Payment> findByOrder(Order order);
     
     Optional<Payment> findByTransactionId(String transactionId);
     
-    // Find all payments by customer (through orders)
-    @Query("{ 'order.customer._id': ?0 }")
+    // Find all payments by customer
+    @Query(value = "{ 'customerId': ?0 }", sort = "{ paymentDate: -1 }")
     List<Payment> findAllByCustomerOrderByPaymentDateDesc(String customerId);
     
+    List<Payment> findByOrderIdIn(Collection<String> orderIds);
+    
+    // Only the order and customer ids, for access checks ahead of heavier reads
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'orderId': 1, 'customerId': 1 }")
+    Optional<Payment> findOwnerById(String paymentId);
+    
     // Find payments by status
     List<Payment> findByStatus(Payment.PaymentStatus status);
     
@@ -0,0 +1,14 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Payment;
+import com.pickupkart.service.KeysetCursor;
+
+import java.util.List;
+
+// Keyset-paged payment reads, newest first; pass null as cursor for the first page
+public interface PaymentRepositoryCustom {
+    List<Payment> findPageByCustomerId(String customerId, KeysetCursor after, int limit);
+    
+    List<Payment> findPageByStatus(Payment.PaymentStatus status, KeysetCursor after, int limit);
+}
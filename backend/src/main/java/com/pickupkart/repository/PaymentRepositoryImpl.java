@@ -0,0 +1,30 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Payment;
+import com.pickupkart.service.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+public class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Payment> findPageByCustomerId(String customerId, KeysetCursor after, int limit) {
+        return mongoTemplate.find(
+                KeysetQueries.pageQuery(Criteria.where("customerId").is(customerId), "paymentDate", after, limit),
+                Payment.class);
+    }
+
+    @Override
+    public List<Payment> findPageByStatus(Payment.PaymentStatus status, KeysetCursor after, int limit) {
+        return mongoTemplate.find(
+                KeysetQueries.pageQuery(Criteria.where("status").is(status), "paymentDate", after, limit),
+                Payment.class);
+    }
+}
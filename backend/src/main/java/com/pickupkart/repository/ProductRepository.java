@@ -14,7 +14,4 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     
     @Query(value = "{}", sort = "{ name: 1 }")
     List<Product> findAllOrderedByName();
-    
-    @Query("{ 'name': { $regex: ?0, $options: 'i' }}")
-    List<Product> searchByNameContaining(String keyword);
 }
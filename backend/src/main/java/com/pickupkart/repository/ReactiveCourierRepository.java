@@ -0,0 +1,14 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Courier;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+// Used by the reactive read module only
+@Repository
+public interface ReactiveCourierRepository extends ReactiveMongoRepository<Courier, String> {
+    // Listed couriers: isCustom false or absent
+    Flux<Courier> findByIsCustomNot(Boolean isCustom);
+}
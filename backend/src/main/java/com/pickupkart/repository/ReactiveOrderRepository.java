@@ -0,0 +1,15 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Order;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+// Used by the reactive read module only
+@Repository
+public interface ReactiveOrderRepository extends ReactiveMongoRepository<Order, String>, ReactiveOrderRepositoryCustom {
+    @Meta(cursorBatchSize = 256)
+    Flux<Order> findByCustomerIdOrderByOrderDateDescIdDesc(String customerId);
+}
@@ -0,0 +1,11 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.service.KeysetCursor;
+import reactor.core.publisher.Flux;
+
+// Keyset-paged order reads, newest first, as in OrderRepositoryCustom
+public interface ReactiveOrderRepositoryCustom {
+    Flux<Order> findPageByCustomerId(String customerId, KeysetCursor after, int limit);
+}
@@ -0,0 +1,21 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.service.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+
+public class ReactiveOrderRepositoryImpl implements ReactiveOrderRepositoryCustom {
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<Order> findPageByCustomerId(String customerId, KeysetCursor after, int limit) {
+        return reactiveMongoTemplate.find(
+                KeysetQueries.pageQuery(Criteria.where("customerId").is(customerId), "orderDate", after, limit),
+                Order.class);
+    }
+}
@@ -0,0 +1,20 @@
+
+package com.pickupkart.repository;
+
+import com.pickupkart.model.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+// Used by the reactive read module only
+@Repository
+public interface ReactiveProductRepository extends ReactiveMongoRepository<Product, String> {
+    // Batches are fetched as the response is written, so a slow client slows the cursor instead of filling memory
+    @Meta(cursorBatchSize = 256)
+    Flux<Product> findAllBy(Sort sort);
+
+    @Meta(cursorBatchSize = 256)
+    Flux<Product> findByQuantityGreaterThan(int quantity, Sort sort);
+}
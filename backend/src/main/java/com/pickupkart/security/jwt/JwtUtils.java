@@ -1,46 +1,193 @@
 
 package com.pickupkart.security.jwt;
 
+import java.security.Key;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.crypto.SecretKey;
+
+import jakarta.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import com.pickupkart.security.services.TokenVersionService;
 import com.pickupkart.security.services.UserDetailsImpl;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
 
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    // Key id written to the header of newly issued tokens
+    @Value("${jwt.key-id:primary}")
+    private String jwtKeyId;
+
+    // Retired keys still accepted for verification during rotation, as "kid=base64secret,kid2=base64secret"
+    @Value("${jwt.previous-keys:}")
+    private String jwtPreviousKeys;
+
+    // HMAC algorithm for new tokens; the secret must be at least as long as the hash
+    @Value("${jwt.algorithm:HS512}")
+    private String jwtAlgorithm;
+
     @Value("${jwt.expiration.ms}")
     private int jwtExpirationMs;
 
+    // When enabled, tokens carry user id, authorities and token version so requests need no user lookup
+    @Value("${jwt.self-contained:false}")
+    private boolean selfContained;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    // Decoded once at startup; SecretKey and JwtParser are immutable and thread-safe
+    private SecretKey signingKey;
+
+    private SignatureAlgorithm signingAlgorithm;
+
+    private Map<String, SecretKey> verificationKeys;
+
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        Map<String, SecretKey> keys = new HashMap<>();
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        keys.put(jwtKeyId, signingKey);
+
+        if (StringUtils.hasText(jwtPreviousKeys)) {
+            for (String entry : jwtPreviousKeys.split(",")) {
+                String[] parts = entry.trim().split("=", 2);
+                if (parts.length != 2 || parts[0].isBlank()) {
+                    throw new IllegalStateException("Error: Invalid jwt.previous-keys entry: " + parts[0]);
+                }
+                keys.putIfAbsent(parts[0].trim(), Keys.hmacShaKeyFor(Decoders.BASE64.decode(parts[1].trim())));
+            }
+        }
+        verificationKeys = Map.copyOf(keys);
+
+        signingAlgorithm = hmacAlgorithm(jwtAlgorithm, signingKey);
+
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveVerificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+
+    // The algorithm is configured, never derived from the key: a secret too short for it stops startup
+    static SignatureAlgorithm hmacAlgorithm(String name, SecretKey key) {
+        SignatureAlgorithm algorithm;
+        try {
+            algorithm = SignatureAlgorithm.forName(name.trim());
+        } catch (SignatureException e) {
+            throw new IllegalStateException("Error: Unknown jwt.algorithm: " + name);
+        }
+        if (!algorithm.isHmac()) {
+            throw new IllegalStateException("Error: jwt.algorithm must be HS256, HS384 or HS512, not " + name);
+        }
+        int bits = key.getEncoded().length * 8;
+        if (bits < algorithm.getMinKeyLength()) {
+            throw new IllegalStateException("Error: jwt.secret is " + bits + " bits, " + algorithm
+                    + " needs at least " + algorithm.getMinKeyLength() + ".");
+        }
+        return algorithm;
+    }
+
+    private SecretKey resolveVerificationKey(String keyId) {
+        // Tokens issued before key ids were introduced are verified with the current key
+        if (keyId == null) {
+            return signingKey;
+        }
+        SecretKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key id: " + keyId);
+        }
+        return key;
+    }
+
     public String generateJwtToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
-        return Jwts.builder()
-                .setSubject((userPrincipal.getUsername()))
+        JwtBuilder builder = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, jwtKeyId)
+                .setSubject((userPrincipal.getUsername()));
+
+        // Every token carries the user id and token version, so logout and credential changes can revoke it
+        builder.claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_TOKEN_VERSION, tokenVersionService.currentVersion(userPrincipal.getId()));
+        if (selfContained) {
+            List<String> authorities = userPrincipal.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toList());
+            builder.claim(CLAIM_ROLES, authorities);
+        }
+
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(signingKey, signingAlgorithm)
                 .compact();
     }
 
+    // Builds the principal straight from a self-contained token, or returns null if the token does not carry
+    // its authorities (then the caller falls back to loading the user). Revoked tokens are rejected either way.
+    public UserDetailsImpl getUserDetailsFromJwtClaims(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId != null && tokenVersion != null && tokenVersion != tokenVersionService.currentVersion(userId)) {
+            throw new BadCredentialsException("JWT token has been revoked for user: " + claims.getSubject());
+        }
+
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (userId == null || roles == null || tokenVersion == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(userId, null, claims.getSubject(), null, null, null, null, authorities);
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseJwtClaims(authToken) != null;
+    }
+
+    // Validates the token and returns its claims in a single parse, or null if the token is not usable
+    public Claims parseJwtClaims(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -53,6 +200,6 @@ public class JwtUtils {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 }
@@ -0,0 +1,127 @@
+
+package com.pickupkart.security.ratelimit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size, lock-free approximate counter. Estimates never undercount; they may overcount
+// when keys collide in every row, which for rate limiting errs on the side of throttling.
+// Rows are indexed by h1 + row * h2, the two halves of a MurmurHash3 (x64, 128-bit) of the key's
+// characters, seeded per sketch: keys that share String.hashCode, or that a client picked to collide
+// under one seed, land apart in the other rows.
+public class CountMinSketch {
+    private static final int MAX_DEPTH = 8;
+
+    private static final long C1 = 0x87C37B91114253D5L;
+
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private final int depth;
+
+    private final int widthMask;
+
+    private final long seed;
+
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int depth, int width) {
+        this(depth, width, ThreadLocalRandom.current().nextLong());
+    }
+
+    public CountMinSketch(int depth, int width, long seed) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Error: Sketch depth must be between 1 and " + MAX_DEPTH);
+        }
+        // Round the width up to a power of two so the column is a mask instead of a modulo
+        int columns = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.depth = depth;
+        this.widthMask = columns - 1;
+        this.seed = seed;
+        this.counters = new AtomicLongArray(depth * columns);
+    }
+
+    // Adds one occurrence of the key and returns the new estimated count
+    public long increment(String key) {
+        long[] hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long count = counters.incrementAndGet(index(row, hash));
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long[] hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    private int index(int row, long[] hash) {
+        long combined = hash[0] + row * hash[1];
+        return row * (widthMask + 1) + (int) (combined & widthMask);
+    }
+
+    // MurmurHash3 x64 128 over the UTF-16 code units, four to a long, without encoding the string to bytes
+    private long[] hash(String key) {
+        long h1 = seed;
+        long h2 = seed;
+        int length = key.length();
+        int blocks = length >>> 3;
+        for (int block = 0; block < blocks; block++) {
+            int offset = block << 3;
+            h1 ^= mixK1(chars(key, offset, 4));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= mixK2(chars(key, offset + 4, 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+        int tail = blocks << 3;
+        int remaining = length - tail;
+        if (remaining > 4) {
+            h2 ^= mixK2(chars(key, tail + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(chars(key, tail, Math.min(4, remaining)));
+        }
+
+        h1 ^= length * 2L;
+        h2 ^= length * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+
+    private static long chars(String key, int from, int count) {
+        long packed = 0;
+        for (int i = 0; i < count; i++) {
+            packed |= (long) key.charAt(from + i) << (16 * i);
+        }
+        return packed;
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
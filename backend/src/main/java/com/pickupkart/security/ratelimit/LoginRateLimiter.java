@@ -0,0 +1,98 @@
+
+package com.pickupkart.security.ratelimit;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Throttles /auth/login before any database access or password hashing.
+// Login names get an exact, lock-free token bucket (GCRA: one AtomicLong per name holding the
+// theoretical arrival time). Client IPs are counted approximately in a fixed-size sliding-window
+// sketch, so a flood of spoofed or rotating addresses cannot grow memory.
+@Component
+public class LoginRateLimiter {
+    private final boolean enabled;
+
+    private final long loginIntervalNanos;
+
+    private final long loginBurstNanos;
+
+    private final long ipLimit;
+
+    private final Cache<String, AtomicLong> loginBuckets;
+
+    private final SlidingWindowSketch ipWindow;
+
+    private final Counter loginThrottled;
+
+    private final Counter ipThrottled;
+
+    public LoginRateLimiter(@Value("${auth.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${auth.rate-limit.login.per-minute:10}") int loginPerMinute,
+                            @Value("${auth.rate-limit.login.burst:5}") int loginBurst,
+                            @Value("${auth.rate-limit.login.max-tracked:100000}") long maxTrackedLogins,
+                            @Value("${auth.rate-limit.ip.per-minute:60}") long ipPerMinute,
+                            @Value("${auth.rate-limit.ip.sketch-depth:4}") int sketchDepth,
+                            @Value("${auth.rate-limit.ip.sketch-width:65536}") int sketchWidth,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.loginIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, loginPerMinute);
+        this.loginBurstNanos = loginIntervalNanos * Math.max(0, loginBurst - 1);
+        this.ipLimit = ipPerMinute;
+
+        // An idle bucket is full again after loginBurst intervals, so it can be dropped after that
+        this.loginBuckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedLogins)
+                .expireAfterAccess(Duration.ofNanos(loginIntervalNanos * Math.max(1, loginBurst)))
+                .build();
+        this.ipWindow = new SlidingWindowSketch(TimeUnit.MINUTES.toNanos(1), sketchDepth, sketchWidth, System.nanoTime());
+
+        this.loginThrottled = Counter.builder("auth.login.throttled").tag("key", "loginName").register(meterRegistry);
+        this.ipThrottled = Counter.builder("auth.login.throttled").tag("key", "clientIp").register(meterRegistry);
+    }
+
+    public boolean tryAcquire(String loginName, String clientIp) {
+        return tryAcquire(loginName, clientIp, System.nanoTime());
+    }
+
+    boolean tryAcquire(String loginName, String clientIp, long now) {
+        if (!enabled) {
+            return true;
+        }
+
+        if (clientIp != null && ipWindow.incrementAndEstimate(clientIp, now) > ipLimit) {
+            ipThrottled.increment();
+            return false;
+        }
+
+        if (loginName != null && !tryAcquireLogin(loginName.toLowerCase(Locale.ROOT), now)) {
+            loginThrottled.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean tryAcquireLogin(String loginName, long now) {
+        AtomicLong arrival = loginBuckets.get(loginName, key -> new AtomicLong(now));
+        while (true) {
+            long theoretical = arrival.get();
+            long base = Math.max(theoretical, now);
+            if (base - now > loginBurstNanos) {
+                return false;
+            }
+            if (arrival.compareAndSet(theoretical, base + loginIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+
+package com.pickupkart.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Approximate sliding-window counter over an unbounded key space in constant memory.
+// Two count-min sketches hold the current and previous fixed windows; the estimate weights
+// the previous window by how much of it still overlaps the sliding window.
+public class SlidingWindowSketch {
+    private final long windowNanos;
+
+    private final int depth;
+
+    private final int width;
+
+    private final AtomicReference<Window> window;
+
+    public SlidingWindowSketch(long windowNanos, int depth, int width, long nowNanos) {
+        this.windowNanos = windowNanos;
+        this.depth = depth;
+        this.width = width;
+        this.window = new AtomicReference<>(new Window(nowNanos, new CountMinSketch(depth, width), null));
+    }
+
+    // Records one event for the key and returns the estimated count within the last window
+    public long incrementAndEstimate(String key, long nowNanos) {
+        Window current = rotate(nowNanos);
+        long count = current.sketch.increment(key);
+        if (current.previous == null) {
+            return count;
+        }
+        double overlap = 1.0 - (double) (nowNanos - current.start) / windowNanos;
+        return count + (long) (current.previous.estimate(key) * Math.min(1.0, Math.max(0.0, overlap)));
+    }
+
+    private Window rotate(long nowNanos) {
+        while (true) {
+            Window current = window.get();
+            long elapsed = nowNanos - current.start;
+            if (elapsed < windowNanos) {
+                return current;
+            }
+            // After more than two windows of silence the previous window no longer overlaps
+            CountMinSketch previous = elapsed < 2 * windowNanos ? current.sketch : null;
+            long start = current.start + (elapsed / windowNanos) * windowNanos;
+            Window next = new Window(start, new CountMinSketch(depth, width), previous);
+            if (window.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static final class Window {
+        final long start;
+        final CountMinSketch sketch;
+        final CountMinSketch previous;
+
+        Window(long start, CountMinSketch sketch, CountMinSketch previous) {
+            this.start = start;
+            this.sketch = sketch;
+            this.previous = previous;
+        }
+    }
+}
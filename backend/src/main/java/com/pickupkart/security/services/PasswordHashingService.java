@@ -0,0 +1,91 @@
+
+package com.pickupkart.security.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+// Runs BCrypt work on a small dedicated pool so that a login storm is capped at a fixed amount of CPU
+// instead of occupying every servlet worker. When the pool and its queue are full, submit() rejects
+// immediately with a RejectedExecutionException rather than queueing without bound.
+@Service
+public class PasswordHashingService {
+    private final BCryptPasswordEncoder encoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer hashTimer;
+
+    private final Timer verifyTimer;
+
+    public PasswordHashingService(@Value("${auth.password.bcrypt-strength:10}") int strength,
+                                  @Value("${auth.password.threads:0}") int threads,
+                                  @Value("${auth.password.queue-capacity:256}") int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "passwordHashing");
+
+        this.hashTimer = Timer.builder("auth.password.hash")
+                .description("BCrypt password hashing latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("auth.password.verify")
+                .description("BCrypt password verification latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Runs a task that hashes or verifies passwords on the hashing pool.
+    // The caller's thread (servlet worker or virtual thread) is released while it runs.
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return hashTimer.record(() -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean matches = verifyTimer.record(() -> encoder.matches(rawPassword, encodedPassword));
+        return Boolean.TRUE.equals(matches);
+    }
+
+    public boolean upgradeEncoding(String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+
+package com.pickupkart.security.services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pickupkart.model.User;
+
+// Per-user token version used to revoke self-contained JWTs.
+// Versions are served from memory; the TTL bounds how long another API node can accept a revoked token.
+@Service
+public class TokenVersionService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final LoadingCache<String, Integer> versions;
+
+    public TokenVersionService(@Value("${jwt.token-version.cache-size:100000}") long maxSize,
+                               @Value("${jwt.token-version.ttl-seconds:60}") long ttlSeconds) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build(this::loadVersion);
+    }
+
+    public int currentVersion(String userId) {
+        Integer version = versions.get(userId);
+        return version != null ? version : 0;
+    }
+
+    // The version if it is in memory, without loading it; null otherwise
+    public Integer cachedVersion(String userId) {
+        return versions.getIfPresent(userId);
+    }
+
+    // Invalidates every token issued so far for the given user
+    public int revokeTokens(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        Update update = new Update().inc("tokenVersion", 1);
+        User user = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), User.class);
+        int version = user != null && user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        versions.put(userId, version);
+        return version;
+    }
+
+    public void evict(String userId) {
+        versions.invalidate(userId);
+    }
+
+    private Integer loadVersion(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("tokenVersion");
+        User user = mongoTemplate.findOne(query, User.class);
+        // Unknown users get -1 so that no token matches
+        if (user == null) {
+            return -1;
+        }
+        return user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+    }
+}
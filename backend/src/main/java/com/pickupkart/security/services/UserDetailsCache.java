@@ -0,0 +1,115 @@
+package com.pickupkart.security.services;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Bounded, TTL-evicting cache of authenticated principals keyed by login name.
+// Used by the JWT filter so that authenticated requests do not hit MongoDB every time.
+// Entries are futures: the first miss for a login name puts one in and loads the user itself, outside
+// any cache lock, and concurrent misses for that name wait on it instead of each reading MongoDB.
+@Component
+public class UserDetailsCache {
+    public static final String CACHE_NAME = "userDetails";
+
+    private final Cache<String, CompletableFuture<UserDetailsImpl>> cache;
+
+    private final boolean enabled;
+
+    @Autowired
+    public UserDetailsCache(@Value("${auth.user-cache.enabled:true}") boolean enabled,
+                            @Value("${auth.user-cache.max-size:10000}") long maxSize,
+                            @Value("${auth.user-cache.ttl-seconds:300}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        this(enabled, maxSize, ttlSeconds, meterRegistry, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    UserDetailsCache(boolean enabled, long maxSize, long ttlSeconds, MeterRegistry meterRegistry,
+                     Ticker ticker, Executor executor) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size under /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public UserDetailsImpl get(String loginName, Function<String, UserDetailsImpl> loader) {
+        if (!enabled) {
+            return loader.apply(loginName);
+        }
+        CompletableFuture<UserDetailsImpl> cached = cache.getIfPresent(loginName);
+        if (cached == null) {
+            CompletableFuture<UserDetailsImpl> loading = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(loginName, loading);
+            if (cached == null) {
+                return load(loginName, loading, loader);
+            }
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Runs on the thread that missed first. An eviction meanwhile removes the future, so a user saved during
+    // the read is loaded afresh by the next request; callers already waiting get this read.
+    private UserDetailsImpl load(String loginName, CompletableFuture<UserDetailsImpl> loading,
+                                 Function<String, UserDetailsImpl> loader) {
+        UserDetailsImpl loaded;
+        try {
+            loaded = loader.apply(loginName);
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(loginName, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(loaded);
+        return loaded;
+    }
+
+    public void evict(String loginName) {
+        if (loginName != null) {
+            cache.invalidate(loginName);
+        }
+    }
+
+    // Loads still in flight are dropped too: their user is not known until they finish
+    public void evictById(String userId) {
+        if (userId != null) {
+            cache.asMap().values().removeIf(future -> {
+                UserDetailsImpl userDetails = future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+                return userDetails == null || userId.equals(userDetails.getId());
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
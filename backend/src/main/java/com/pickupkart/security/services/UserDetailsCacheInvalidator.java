@@ -0,0 +1,85 @@
+
+package com.pickupkart.security.services;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.pickupkart.model.Role;
+import com.pickupkart.model.User;
+
+import java.util.Objects;
+
+// Drops cached principals whenever a user or a role document is written through Spring Data, and revokes
+// a user's tokens when a save changes their roles or password (self-contained tokens carry the roles).
+// Raw MongoTemplate updates bypass these events and must call UserDetailsCache directly.
+@Component
+public class UserDetailsCacheInvalidator extends AbstractMongoEventListener<Object> {
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Raises the token version in the same write as the change; never lowers one revoked since the user was read
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Object> event) {
+        if (!(event.getSource() instanceof User user) || user.getId() == null) {
+            return;
+        }
+        Query query = new Query(Criteria.where("_id").is(user.getId()));
+        query.fields().include("roles", "password", "tokenVersion");
+        User stored = mongoTemplate.findOne(query, User.class);
+        if (stored == null) {
+            return;
+        }
+        int version = Math.max(versionOf(stored), versionOf(user));
+        if (!Objects.equals(stored.getRoles(), user.getRoles()) || !Objects.equals(stored.getPassword(), user.getPassword())) {
+            version++;
+        }
+        user.setTokenVersion(version);
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof User user) {
+            userDetailsCache.evict(user.getLoginName());
+            userDetailsCache.evictById(user.getId());
+            tokenVersionService.evict(user.getId());
+        } else if (source instanceof Role) {
+            userDetailsCache.evictAll();
+        }
+    }
+
+    private static int versionOf(User user) {
+        return user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (User.class.equals(event.getType())) {
+            Document source = event.getSource();
+            Object id = source != null ? source.get("_id") : null;
+            if (id instanceof String || id instanceof ObjectId) {
+                userDetailsCache.evictById(id.toString());
+                tokenVersionService.evict(id.toString());
+            } else {
+                userDetailsCache.evictAll();
+            }
+        } else if (Role.class.equals(event.getType())) {
+            userDetailsCache.evictAll();
+        }
+    }
+}
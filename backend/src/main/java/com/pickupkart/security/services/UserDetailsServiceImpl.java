@@ -6,7 +6,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.pickupkart.model.User;
 import com.pickupkart.repository.UserRepository;
@@ -16,12 +15,20 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    // A single read: no transaction (with a MongoTransactionManager it would need a replica set)
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByLoginName(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
 
         return UserDetailsImpl.build(user);
     }
+
+    // Used on the per-request JWT path; login still goes through loadUserByUsername against the database
+    public UserDetailsImpl loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, name -> (UserDetailsImpl) loadUserByUsername(name));
+    }
 }
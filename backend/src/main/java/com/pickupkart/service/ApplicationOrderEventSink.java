@@ -0,0 +1,22 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Hands each event to in-process @EventListener methods taking an OutboxEvent. Listeners run on the
+// dispatcher thread, so a listener that throws has the batch retried.
+@Component
+public class ApplicationOrderEventSink implements OrderEventSink {
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
@@ -0,0 +1,411 @@
+package com.pickupkart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.pickupkart.config.MongoTopology;
+import com.pickupkart.model.Courier;
+import com.pickupkart.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Serves the product and courier catalogs from an immutable in-memory snapshot, already encoded as JSON,
+// so catalog reads neither query MongoDB nor run Jackson. Changed products are re-read by id and patched
+// into the snapshot and the ProductSearchIndex on the next refresh tick; the other products keep their
+// encoded bytes. Changes come from a change stream on replica sets, from local mapping events, and on
+// standalone servers (no change streams) from periodically comparing ids, updatedAt and stock.
+//
+// Reservations and hot-SKU leases only $inc quantity. Those updates are ignored unless stock crosses
+// zero (the in-stock list changes), so the quantity shown in the catalog is refreshed with the product's
+// next other change; reservations always check the real stock.
+@Service
+public class CatalogCache {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    private static final String PRODUCTS = "products";
+
+    private static final String COURIERS = "couriers";
+
+    // Fields written by reservations and leases; an update touching only these matters when stock crosses zero
+    private static final Set<String> STOCK_FIELDS = Set.of("quantity");
+
+    // Same order the catalog was read in before (name ascending), kept when products are patched in
+    private static final Comparator<Product> BY_NAME = Comparator.comparing(Product::getName,
+            Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(Product::getId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CourierQuoteService courierQuoteService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private MongoTopology mongoTopology;
+
+    @Value("${catalog.cache.change-streams:true}")
+    private boolean changeStreamsEnabled;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final Set<String> changedProducts = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean changedCouriers = new AtomicBoolean();
+
+    private volatile boolean watching;
+
+    private MessageListenerContainer container;
+
+    // A lock rather than synchronized: the reload reads MongoDB, which would pin a virtual thread
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    public Entry products() {
+        return snapshot().products;
+    }
+
+    public Entry productsInStock() {
+        return snapshot().productsInStock;
+    }
+
+    public Entry couriers() {
+        return snapshot().couriers;
+    }
+
+    public Entry listedCouriers() {
+        return snapshot().listedCouriers;
+    }
+
+    // In-memory product lookup for validating incoming orders
+    public Optional<Product> product(String productId) {
+        return Optional.ofNullable(snapshot().productsById.get(productId));
+    }
+
+    // Rebuilds the whole snapshot on the next tick
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    public void productChanged(String productId) {
+        changedProducts.add(productId);
+    }
+
+    public void couriersChanged() {
+        changedCouriers.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWatching() {
+        // Load once up front so the search index is populated before the first request
+        snapshot();
+        if (!changeStreamsEnabled || !mongoTopology.supportsChangeStreams()) {
+            logger.info("Catalog cache: change streams unavailable, polling for catalog changes");
+            return;
+        }
+        container = new DefaultMessageListenerContainer(mongoTemplate,
+                new SimpleAsyncTaskExecutor("catalog-watch-"), this::onWatchError);
+        ChangeStreamRequest<Document> products = ChangeStreamRequest.<Document>builder(
+                        message -> onProductChange(message.getRaw()))
+                .collection(PRODUCTS)
+                .build();
+        ChangeStreamRequest<Document> couriers = ChangeStreamRequest.builder()
+                .collection(COURIERS)
+                .publishTo(message -> couriersChanged())
+                .build();
+        container.register(products, Document.class);
+        container.register(couriers, Document.class);
+        container.start();
+        watching = true;
+        logger.info("Catalog cache: watching {} for changes", List.of(PRODUCTS, COURIERS));
+    }
+
+    @PreDestroy
+    public void stopWatching() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.cache.refresh-interval-ms:500}")
+    public void refreshIfDirty() {
+        if (dirty.getAndSet(false)) {
+            reload();
+        }
+        boolean couriers = changedCouriers.getAndSet(false);
+        List<String> productIds = new ArrayList<>();
+        for (String productId : changedProducts) {
+            if (changedProducts.remove(productId)) {
+                productIds.add(productId);
+            }
+        }
+        if (couriers || !productIds.isEmpty()) {
+            patch(productIds, couriers);
+        }
+    }
+
+    // Without a change stream, stock moved by conditional updates raises no event. Reads only ids,
+    // updatedAt and quantity, and queues the products that are new, gone, edited or crossed zero
+    @Scheduled(fixedDelayString = "${catalog.cache.poll-interval-ms:5000}")
+    public void poll() {
+        Snapshot current = snapshot;
+        if (watching || current == null) {
+            return;
+        }
+        Query productQuery = new Query();
+        productQuery.fields().include("quantity", "updatedAt");
+        Set<String> seen = new HashSet<>(current.productsById.size() * 2);
+        for (Product state : mongoTemplate.find(productQuery, Product.class)) {
+            seen.add(state.getId());
+            Product cached = current.productsById.get(state.getId());
+            if (cached == null || !Objects.equals(cached.getUpdatedAt(), state.getUpdatedAt())
+                    || inStock(cached.getQuantity()) != inStock(state.getQuantity())) {
+                productChanged(state.getId());
+            }
+        }
+        for (String productId : current.productsById.keySet()) {
+            if (!seen.contains(productId)) {
+                productChanged(productId);
+            }
+        }
+
+        Query courierQuery = new Query();
+        courierQuery.fields().include("updatedAt");
+        Map<String, LocalDateTime> courierStates = new HashMap<>();
+        mongoTemplate.find(courierQuery, Courier.class)
+                .forEach(courier -> courierStates.put(courier.getId(), courier.getUpdatedAt()));
+        Map<String, LocalDateTime> cachedCouriers = new HashMap<>();
+        current.courierList.forEach(courier -> cachedCouriers.put(courier.getId(), courier.getUpdatedAt()));
+        if (!courierStates.equals(cachedCouriers)) {
+            couriersChanged();
+        }
+    }
+
+    void onProductChange(ChangeStreamDocument<Document> event) {
+        String productId = documentId(event.getDocumentKey());
+        if (productId == null || event.getOperationType() == null) {
+            markDirty();
+            return;
+        }
+        switch (event.getOperationType()) {
+            case INSERT, REPLACE, DELETE -> productChanged(productId);
+            case UPDATE -> {
+                if (!stockOnly(productId, event.getUpdateDescription())) {
+                    productChanged(productId);
+                }
+            }
+            // drop, rename, invalidate and anything newer
+            default -> markDirty();
+        }
+    }
+
+    // True when the update only moved stock and the product stays on the same side of zero
+    private boolean stockOnly(String productId, UpdateDescription update) {
+        if (update == null || update.getUpdatedFields() == null
+                || (update.getRemovedFields() != null && !update.getRemovedFields().isEmpty())
+                || !STOCK_FIELDS.containsAll(update.getUpdatedFields().keySet())) {
+            return false;
+        }
+        BsonValue quantity = update.getUpdatedFields().get("quantity");
+        if (quantity == null) {
+            return true;
+        }
+        Snapshot current = snapshot;
+        Product cached = current != null ? current.productsById.get(productId) : null;
+        return cached != null && quantity.isNumber()
+                && inStock(cached.getQuantity()) == (quantity.asNumber().longValue() > 0);
+    }
+
+    private static String documentId(BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+
+    private static boolean inStock(Integer quantity) {
+        return quantity != null && quantity > 0;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private Snapshot reload() {
+        reloadLock.lock();
+        try {
+            return doReload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Snapshot doReload() {
+        List<Product> products = mongoTemplate.findAll(Product.class);
+        List<Courier> couriers = mongoTemplate.findAll(Courier.class);
+
+        Snapshot previous = snapshot;
+        Snapshot next = build(previous,
+                products.stream().collect(Collectors.toUnmodifiableMap(Product::getId, product -> product)),
+                null, couriers);
+        if (previous == null || previous.products != next.products) {
+            productSearchIndex.sync(products);
+        }
+        snapshot = next;
+        return next;
+    }
+
+    // Re-reads only the given products (and the couriers if asked) and swaps in a snapshot built around them
+    private void patch(Collection<String> productIds, boolean couriers) {
+        reloadLock.lock();
+        try {
+            Snapshot previous = snapshot;
+            if (previous == null) {
+                doReload();
+                return;
+            }
+            Map<String, Product> productsById = previous.productsById;
+            if (!productIds.isEmpty()) {
+                Map<String, Product> found = new HashMap<>();
+                mongoTemplate.find(new Query(Criteria.where("_id").in(productIds)), Product.class)
+                        .forEach(product -> found.put(product.getId(), product));
+                Map<String, Product> patched = new HashMap<>(productsById);
+                for (String productId : productIds) {
+                    Product product = found.get(productId);
+                    if (product != null) {
+                        patched.put(productId, product);
+                        productSearchIndex.index(product);
+                    } else {
+                        patched.remove(productId);
+                        productSearchIndex.remove(productId);
+                    }
+                }
+                productsById = Map.copyOf(patched);
+            }
+            snapshot = build(previous, productsById, productIds,
+                    couriers ? mongoTemplate.findAll(Courier.class) : previous.courierList);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // changedProductIds == null re-encodes every product; otherwise only those, reusing the rest
+    private Snapshot build(Snapshot previous, Map<String, Product> productsById,
+                           Collection<String> changedProductIds, List<Courier> couriers) {
+        Map<String, byte[]> productJson = new HashMap<>(productsById.size() * 2);
+        for (Product product : productsById.values()) {
+            byte[] json = previous != null && changedProductIds != null && !changedProductIds.contains(product.getId())
+                    ? previous.productJson.get(product.getId()) : null;
+            productJson.put(product.getId(), json != null ? json : encode(product));
+        }
+        List<Product> sorted = new ArrayList<>(productsById.values());
+        sorted.sort(BY_NAME);
+
+        Snapshot next = new Snapshot(
+                entry(previous != null ? previous.products : null, join(sorted, productJson)),
+                entry(previous != null ? previous.productsInStock : null, join(sorted.stream()
+                        .filter(product -> inStock(product.getQuantity()))
+                        .toList(), productJson)),
+                entry(previous != null ? previous.couriers : null, encode(couriers)),
+                entry(previous != null ? previous.listedCouriers : null, encode(couriers.stream()
+                        .filter(courier -> !Boolean.TRUE.equals(courier.getIsCustom()))
+                        .toList())),
+                productsById, Map.copyOf(productJson), List.copyOf(couriers));
+        if (previous != null && previous.couriers != next.couriers) {
+            // Courier writes on other instances only reach this one through the catalog
+            courierQuoteService.invalidate();
+        }
+        return next;
+    }
+
+    // Same bytes Jackson writes for the whole list, from the per-product encodings
+    private static byte[] join(List<Product> products, Map<String, byte[]> productJson) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(productJson.get(products.get(i).getId()));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error: Could not encode catalog.", e);
+        }
+    }
+
+    // Keeps the previous entry when the encoded bytes are unchanged, so ETags stay stable
+    private static Entry entry(Entry previous, byte[] json) {
+        if (previous != null && Arrays.equals(previous.json, json)) {
+            return previous;
+        }
+        return new Entry(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+    }
+
+    private void onWatchError(Throwable error) {
+        logger.warn("Catalog cache: change stream failed, falling back to polling", error);
+        watching = false;
+        markDirty();
+    }
+
+    public record Entry(byte[] json, String etag) {
+    }
+
+    private record Snapshot(Entry products, Entry productsInStock, Entry couriers, Entry listedCouriers,
+                            Map<String, Product> productsById, Map<String, byte[]> productJson,
+                            List<Courier> courierList) {
+    }
+}
@@ -0,0 +1,44 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Courier;
+import com.pickupkart.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Local writes refresh the catalog and the search index without waiting for the change stream or the next poll
+@Component
+public class CatalogCacheInvalidator extends AbstractMongoEventListener<Object> {
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        if (event.getSource() instanceof Product product) {
+            productSearchIndex.index(product);
+            catalogCache.productChanged(product.getId());
+        } else if (event.getSource() instanceof Courier) {
+            catalogCache.couriersChanged();
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Object id = event.getSource() != null ? event.getSource().get("_id") : null;
+        if (Product.class.equals(event.getType()) && id != null) {
+            productSearchIndex.remove(id.toString());
+            catalogCache.productChanged(id.toString());
+        } else if (Product.class.equals(event.getType())) {
+            // Deleted by query: which products went is unknown
+            catalogCache.markDirty();
+        } else if (Courier.class.equals(event.getType())) {
+            catalogCache.couriersChanged();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.payload.request.PlaceOrderRequest;
+import com.pickupkart.payload.response.CheckoutResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+// Checkout places the order, reserves its stock and records the PENDING payment as one unit.
+// On a replica set the three writes share one TransactionRunner transaction. A standalone server has
+// no transactions, so the writes run as a saga and a failed step undoes the earlier ones in reverse order.
+@Service
+public class CheckoutService {
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PaymentCaptureService paymentCaptureService;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    public CheckoutResponse checkout(String customerId, PlaceOrderRequest request) {
+        return transactionRunner.transactional()
+                ? inTransaction(customerId, request)
+                : asSaga(customerId, request);
+    }
+
+    private CheckoutResponse inTransaction(String customerId, PlaceOrderRequest request) {
+        return transactionRunner.execute(() -> {
+            Order order = mongoTemplate.insert(orderService.buildOrder(customerId, request));
+            if (!inventoryService.reserve(order.getId(), order.getProductId(), order.getQuantity())) {
+                throw OrderService.outOfStock(order);
+            }
+            Payment payment = mongoTemplate.insert(paymentCaptureService.pendingPayment(order, request.getPaymentMode()));
+            orderEventOutbox.orderPlaced(order);
+            orderEventOutbox.paymentCreated(payment);
+            return new CheckoutResponse(order, payment);
+        });
+    }
+
+    private CheckoutResponse asSaga(String customerId, PlaceOrderRequest request) {
+        Order order = mongoTemplate.insert(orderService.buildOrder(customerId, request));
+        boolean reserved = false;
+        Payment payment;
+        try {
+            reserved = inventoryService.reserve(order.getId(), order.getProductId(), order.getQuantity());
+            if (!reserved) {
+                throw OrderService.outOfStock(order);
+            }
+            payment = mongoTemplate.insert(paymentCaptureService.pendingPayment(order, request.getPaymentMode()));
+        } catch (RuntimeException e) {
+            compensate(order, reserved);
+            throw e;
+        }
+        // Recorded once the saga has completed; a compensated checkout is never announced
+        orderEventOutbox.orderPlaced(order);
+        orderEventOutbox.paymentCreated(payment);
+        return new CheckoutResponse(order, payment);
+    }
+
+    // Undoes the completed saga steps, newest first; a step that fails here is left to the reservation sweeper
+    private void compensate(Order order, boolean reserved) {
+        try {
+            if (reserved) {
+                inventoryService.release(order.getId());
+            }
+            mongoTemplate.remove(order);
+        } catch (RuntimeException e) {
+            logger.warn("Checkout: could not undo order {}; its reservation expires on its own", order.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+
+package com.pickupkart.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pickupkart.model.Order;
+import com.pickupkart.payload.response.CourierQuote;
+import com.pickupkart.repository.CourierRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Delivery quotes from an in-memory CourierRateTable. The table is built from MongoDB on first use
+// and dropped whenever a courier is written (see CourierRateTableInvalidator), so bookings never
+// read couriers from the database. "Quote all couriers" lists are cached per (charged km, quantity)
+// alongside the table they were computed from.
+@Service
+public class CourierQuoteService {
+    @Autowired
+    private CourierRepository courierRepository;
+
+    private final long[] bandCeilingsKm;
+
+    private final long extraItemPercent;
+
+    private final long maxCachedQuoteLists;
+
+    private final double maxDistanceKm;
+
+    private final int maxQuantity;
+
+    private volatile Rates rates;
+
+    // Bumped on every courier write so a rebuild that raced with the write is not published
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public CourierQuoteService(@Value("${couriers.quote.bands-km:5,10,25,50,100,250,500}") long[] bandCeilingsKm,
+                               @Value("${couriers.quote.extra-item-percent:5}") long extraItemPercent,
+                               @Value("${couriers.quote.cache-size:4096}") long maxCachedQuoteLists,
+                               @Value("${couriers.quote.max-distance-km:5000}") double maxDistanceKm,
+                               @Value("${couriers.quote.max-quantity:1000}") int maxQuantity) {
+        this.bandCeilingsKm = bandCeilingsKm;
+        this.extraItemPercent = extraItemPercent;
+        this.maxCachedQuoteLists = maxCachedQuoteLists;
+        this.maxDistanceKm = maxDistanceKm;
+        this.maxQuantity = maxQuantity;
+    }
+
+    public CourierQuote quote(String courierId, double distanceKm, int quantity) {
+        validate(distanceKm, quantity);
+        CourierRateTable table = rates().table;
+        int index = table.indexOf(courierId);
+        if (index < 0) {
+            throw new RuntimeException("Error: Courier is not found.");
+        }
+        return toQuote(table, index, distanceKm, quantity);
+    }
+
+    // Quotes from every listed (non-custom) courier, cheapest first
+    public List<CourierQuote> quoteAll(double distanceKm, int quantity) {
+        validate(distanceKm, quantity);
+        Rates current = rates();
+        CourierRateTable table = current.table;
+        long key = table.chargedKm(distanceKm) << 32 | quantity;
+        return current.quoteLists.get(key, k -> {
+            List<CourierQuote> quotes = new ArrayList<>(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                if (!table.isCustom(i)) {
+                    quotes.add(toQuote(table, i, distanceKm, quantity));
+                }
+            }
+            quotes.sort((a, b) -> a.getAmount().compareTo(b.getAmount()));
+            return List.copyOf(quotes);
+        });
+    }
+
+    // Snapshot for a new order, taken from the rate table instead of reading the courier
+    public Optional<Order.CourierSnapshot> snapshot(String courierId) {
+        CourierRateTable table = rates().table;
+        int index = table.indexOf(courierId);
+        return index < 0 ? Optional.empty()
+                : Optional.of(new Order.CourierSnapshot(courierId, table.courierName(index), table.pricePerKm(index)));
+    }
+
+    public BigDecimal deliveryCost(String courierId, double distanceKm, int quantity) {
+        return quote(courierId, distanceKm, quantity).getAmount();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        rates = null;
+    }
+
+    private CourierQuote toQuote(CourierRateTable table, int index, double distanceKm, int quantity) {
+        return new CourierQuote(table.courierId(index), table.courierName(index), table.chargedKm(distanceKm),
+                quantity, CourierRateTable.toAmount(table.quoteScaled(index, distanceKm, quantity)));
+    }
+
+    private void validate(double distanceKm, int quantity) {
+        if (!(distanceKm > 0) || distanceKm > maxDistanceKm) {
+            throw new RuntimeException("Error: Distance must be between 0 and " + maxDistanceKm + " km.");
+        }
+        if (quantity < 1 || quantity > maxQuantity) {
+            throw new RuntimeException("Error: Quantity must be between 1 and " + maxQuantity + ".");
+        }
+    }
+
+    private Rates rates() {
+        Rates current = rates;
+        if (current == null) {
+            // Not synchronized: the courier read would pin a virtual thread to its carrier
+            loadLock.lock();
+            try {
+                current = rates;
+                if (current == null) {
+                    long loadedGeneration = generation.get();
+                    current = new Rates(CourierRateTable.of(courierRepository.findAll(), bandCeilingsKm, extraItemPercent),
+                            Caffeine.newBuilder().maximumSize(maxCachedQuoteLists).build());
+                    if (generation.get() == loadedGeneration) {
+                        rates = current;
+                    }
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private record Rates(CourierRateTable table, Cache<Long, List<CourierQuote>> quoteLists) {
+    }
+}
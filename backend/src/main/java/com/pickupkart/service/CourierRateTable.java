@@ -0,0 +1,114 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Courier;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable snapshot of courier prices. Money is held as longs scaled by 10^4 (1/100 paise), so a quote
+// is a band lookup and a few integer multiplications; BigDecimal only appears when the result is returned.
+final class CourierRateTable {
+    static final int SCALE = 4;
+
+    private final String[] courierIds;
+    private final String[] courierNames;
+    private final boolean[] custom;
+    private final long[] pricePerKm;
+    private final BigDecimal[] pricePerKmValues;
+    // bandCost[courier][band] = pricePerKm * band ceiling, precomputed
+    private final long[][] bandCost;
+    private final long[] bandCeilingsKm;
+    private final long extraItemPercent;
+    private final Map<String, Integer> indexById;
+
+    private CourierRateTable(List<Courier> couriers, long[] bandCeilingsKm, long extraItemPercent) {
+        int size = couriers.size();
+        this.courierIds = new String[size];
+        this.courierNames = new String[size];
+        this.custom = new boolean[size];
+        this.pricePerKm = new long[size];
+        this.pricePerKmValues = new BigDecimal[size];
+        this.bandCost = new long[size][bandCeilingsKm.length];
+        this.bandCeilingsKm = bandCeilingsKm.clone();
+        this.extraItemPercent = extraItemPercent;
+        this.indexById = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            Courier courier = couriers.get(i);
+            courierIds[i] = courier.getId();
+            courierNames[i] = courier.getName();
+            custom[i] = Boolean.TRUE.equals(courier.getIsCustom());
+            pricePerKm[i] = toScaled(courier.getPricePerKm());
+            pricePerKmValues[i] = courier.getPricePerKm();
+            for (int band = 0; band < bandCeilingsKm.length; band++) {
+                bandCost[i][band] = pricePerKm[i] * bandCeilingsKm[band];
+            }
+            indexById.put(courier.getId(), i);
+        }
+    }
+
+    static CourierRateTable of(List<Courier> couriers, long[] bandCeilingsKm, long extraItemPercent) {
+        long[] bands = bandCeilingsKm.clone();
+        Arrays.sort(bands);
+        return new CourierRateTable(couriers, bands, extraItemPercent);
+    }
+
+    int size() {
+        return courierIds.length;
+    }
+
+    int indexOf(String courierId) {
+        Integer index = indexById.get(courierId);
+        return index != null ? index : -1;
+    }
+
+    String courierId(int index) {
+        return courierIds[index];
+    }
+
+    String courierName(int index) {
+        return courierNames[index];
+    }
+
+    BigDecimal pricePerKm(int index) {
+        return pricePerKmValues[index];
+    }
+
+    boolean isCustom(int index) {
+        return custom[index];
+    }
+
+    // Trips are charged up to the ceiling of their band; beyond the last band, per started km
+    long chargedKm(double distanceKm) {
+        int band = band(distanceKm);
+        return band >= 0 ? bandCeilingsKm[band] : (long) Math.ceil(distanceKm);
+    }
+
+    long quoteScaled(int index, double distanceKm, int quantity) {
+        int band = band(distanceKm);
+        long base = band >= 0 ? bandCost[index][band] : pricePerKm[index] * (long) Math.ceil(distanceKm);
+        // Each item after the first adds extraItemPercent of the base price
+        return base + base * extraItemPercent * (quantity - 1) / 100;
+    }
+
+    static BigDecimal toAmount(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static long toScaled(BigDecimal value) {
+        return value != null ? value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0L;
+    }
+
+    private int band(double distanceKm) {
+        for (int band = 0; band < bandCeilingsKm.length; band++) {
+            if (distanceKm <= bandCeilingsKm[band]) {
+                return band;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,26 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Courier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Rebuilds the courier rate table on next use after any courier is saved or deleted
+@Component
+public class CourierRateTableInvalidator extends AbstractMongoEventListener<Courier> {
+    @Autowired
+    private CourierQuoteService courierQuoteService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Courier> event) {
+        courierQuoteService.invalidate();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Courier> event) {
+        courierQuoteService.invalidate();
+    }
+}
@@ -0,0 +1,281 @@
+
+package com.pickupkart.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+// Streams orders and payments for finance as CSV or NDJSON. Rows are read as raw documents from a
+// cursor with a fixed batch size and written straight to the response, so memory stays flat however
+// many rows are exported. Exports run on the MVC async executor and are capped at a few at a time.
+@Service
+public class ExportService {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private static final List<Column> ORDER_COLUMNS = List.of(
+            new Column("orderId", "_id"),
+            new Column("orderDate", "orderDate"),
+            new Column("status", "status"),
+            new Column("customerId", "customerId"),
+            new Column("customerName", "customer.fullName"),
+            new Column("productId", "productId"),
+            new Column("productName", "product.name"),
+            new Column("unitPrice", "product.unitPrice"),
+            new Column("quantity", "quantity"),
+            new Column("courierId", "courierId"),
+            new Column("courierName", "courier.name"),
+            new Column("customCourierName", "customCourierName"),
+            new Column("amount", "amount"),
+            new Column("deliveryDate", "deliveryDate"));
+
+    private static final List<Column> PAYMENT_COLUMNS = List.of(
+            new Column("paymentId", "_id"),
+            new Column("paymentDate", "paymentDate"),
+            new Column("status", "status"),
+            new Column("orderId", "orderId"),
+            new Column("customerId", "customerId"),
+            new Column("paymentMode", "paymentMode"),
+            new Column("paymentAmount", "paymentAmount"),
+            new Column("transactionId", "transactionId"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${exports.batch-size:1000}")
+    private int batchSize;
+
+    // Rows written between flushes, so a slow client sees steady progress without a flush per row
+    @Value("${exports.flush-every:5000}")
+    private int flushEvery;
+
+    private final Semaphore running;
+
+    public ExportService(@Value("${exports.max-concurrent:2}") int maxConcurrent) {
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    // A permit for one export, or null when max-concurrent exports are already running
+    public Permit tryAcquire() {
+        return running.tryAcquire() ? new Permit() : null;
+    }
+
+    public void exportOrders(Format format, LocalDateTime from, LocalDateTime to, String status,
+                             boolean gzip, OutputStream out) throws IOException {
+        export("orders", ORDER_COLUMNS, filter("orderDate", from, to, status), format, gzip, out);
+    }
+
+    public void exportPayments(Format format, LocalDateTime from, LocalDateTime to, String status,
+                               boolean gzip, OutputStream out) throws IOException {
+        export("payments", PAYMENT_COLUMNS, filter("paymentDate", from, to, status), format, gzip, out);
+    }
+
+    private void export(String collection, List<Column> columns, Bson filter, Format format, boolean gzip,
+                        OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+        if (format == Format.NDJSON) {
+            // Lines are separated by writeJson; the generator's default separator would indent each with a space
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.setRootValueSeparator(null);
+        }
+
+        if (format == Format.CSV) {
+            writeCsvHeader(writer, columns);
+        }
+        // Exports read from a secondary when there is one, keeping the scan off the primary
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(collection)
+                .withReadPreference(ReadPreference.secondaryPreferred())
+                .find(filter)
+                .projection(projection(columns))
+                .batchSize(batchSize)
+                .iterator()) {
+            int rows = 0;
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                if (json != null) {
+                    writeJson(json, doc, columns);
+                } else {
+                    writeCsvRow(writer, doc, columns);
+                }
+                if (++rows % flushEvery == 0) {
+                    if (json != null) {
+                        json.flush();
+                    }
+                    writer.flush();
+                }
+            }
+        }
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+    }
+
+    private static Bson filter(String dateField, LocalDateTime from, LocalDateTime to, String status) {
+        List<Bson> filters = new ArrayList<>();
+        if (from != null) {
+            filters.add(Filters.gte(dateField, toDate(from)));
+        }
+        if (to != null) {
+            filters.add(Filters.lt(dateField, toDate(to)));
+        }
+        if (status != null) {
+            filters.add(Filters.eq("status", status));
+        }
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
+
+    private static Bson projection(List<Column> columns) {
+        return Projections.include(columns.stream().map(Column::path).toList());
+    }
+
+    private static void writeCsvHeader(Writer writer, List<Column> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns.get(i).name);
+        }
+        writer.write("\r\n");
+    }
+
+    private static void writeCsvRow(Writer writer, Document doc, List<Column> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = columns.get(i).value(doc);
+            if (value != null) {
+                writeCsvValue(writer, format(value));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 quoting; text that a spreadsheet would run as a formula is prefixed with a quote
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean formula = !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0 && !isNumber(value);
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void writeJson(JsonGenerator json, Document doc, List<Column> columns) throws IOException {
+        json.writeStartObject();
+        for (Column column : columns) {
+            Object value = column.value(doc);
+            if (value == null) {
+                json.writeNullField(column.name);
+            } else if (value instanceof Number number && !(value instanceof org.bson.types.Decimal128)) {
+                json.writeFieldName(column.name);
+                json.writeNumber(number.toString());
+            } else {
+                json.writeStringField(column.name, format(value));
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Date date) {
+            return DATE_FORMAT.format(LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+        }
+        return value.toString();
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // LocalDateTime fields are stored as instants in the server's zone
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    // Every path that can end an export releases its permit; only the first release counts
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                running.release();
+            }
+        }
+    }
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private record Column(String name, String path) {
+        // Orders still holding @DBRef customer/product/courier have no embedded fields, so those read as empty
+        Object value(Document doc) {
+            Object value = doc;
+            for (String key : path.split("\\.")) {
+                if (!(value instanceof Document document)) {
+                    return null;
+                }
+                value = document.get(key);
+            }
+            return value instanceof ObjectId objectId ? objectId.toHexString() : value;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.InventoryLease;
+import com.pickupkart.model.InventoryReservation;
+import com.pickupkart.model.Product;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+// In-memory reservation front for hot SKUs. Stock is leased from MongoDB in chunks with the same
+// conditional $inc used for regular reservations, so the database count is always decremented before
+// a unit is handed out and no node can oversell. Reservations then only CAS a per-thread stripe.
+// Units a node holds but has not sold are written back periodically and on shutdown.
+//
+// Each node's lease of a product is recorded in inventory_leases (units leased and not returned), and
+// every reservation served from it carries the lease id. If the node dies, its heartbeat stops and
+// another node reconciles the lease: units minus the quantity of its reservations goes back to the
+// product. Every step is ordered so a crash in between loses units rather than returning them twice,
+// and a node stops selling from memory once its heartbeat is half-way to expiry, so a lease is never
+// reconciled while its owner still sells from it (assuming node clocks agree within that margin).
+@Component
+public class HotInventoryFront {
+    private static final Logger logger = LoggerFactory.getLogger(HotInventoryFront.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Set<String> hotProductIds;
+
+    private final int stripes;
+
+    private final int leaseChunk;
+
+    private final long idleReturnNanos;
+
+    private final long leaseExpirySeconds;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public HotInventoryFront(@Value("${inventory.hot-skus:}") String hotSkus,
+                             @Value("${inventory.hot-front.stripes:8}") int stripes,
+                             @Value("${inventory.hot-front.lease-chunk:20}") int leaseChunk,
+                             @Value("${inventory.hot-front.idle-return-seconds:30}") long idleReturnSeconds,
+                             @Value("${inventory.hot-front.lease-expiry-seconds:120}") long leaseExpirySeconds) {
+        this.hotProductIds = Arrays.stream(hotSkus.split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toUnmodifiableSet());
+        this.stripes = Math.max(1, stripes);
+        this.leaseChunk = Math.max(1, leaseChunk);
+        this.idleReturnNanos = idleReturnSeconds * 1_000_000_000L;
+        this.leaseExpirySeconds = Math.max(1, leaseExpirySeconds);
+    }
+
+    public boolean isHot(String productId) {
+        return hotProductIds.contains(productId);
+    }
+
+    // Reserves from the node's lease of the product; returns the lease id to record on the reservation,
+    // or null if the product is out of stock
+    public String tryReserve(String productId, int quantity) {
+        // A second round only happens when the lease was reconciled under us and has been replaced
+        for (int round = 0; round < 2; round++) {
+            Pool pool = pools.computeIfAbsent(productId, id -> new Pool(new ObjectId().toHexString(), stripes));
+            long now = System.nanoTime();
+            pool.lastUsed = now;
+            int home = (int) (Thread.currentThread().getId() % stripes);
+
+            // Own stripe first, then steal from the others before going to the database
+            if (pool.sellable(now, leaseExpirySeconds * 500_000_000L)) {
+                for (int i = 0; i < stripes; i++) {
+                    if (pool.take((home + i) % stripes, quantity)) {
+                        return pool.leaseId;
+                    }
+                }
+            }
+
+            // Lease a chunk (or just this request if it is larger) and keep the surplus locally
+            int lease = Math.max(leaseChunk, quantity);
+            LeaseResult leased = lease(productId, pool, lease);
+            if (leased == LeaseResult.LEASED) {
+                pool.add(home, lease - quantity);
+                return pool.leaseId;
+            }
+            // Near the end of stock a full chunk may not be available; try for exactly this request
+            if (leased == LeaseResult.OUT_OF_STOCK && lease != quantity) {
+                leased = lease(productId, pool, quantity);
+                if (leased == LeaseResult.LEASED) {
+                    return pool.leaseId;
+                }
+            }
+            if (leased == LeaseResult.OUT_OF_STOCK) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Puts back units of a reservation that was not written; units of a retired lease were already reconciled
+    public void giveBack(InventoryReservation reservation) {
+        Pool pool = pools.get(reservation.getProductId());
+        if (pool != null && pool.leaseId.equals(reservation.getLeaseId())) {
+            pool.add((int) (Thread.currentThread().getId() % stripes), reservation.getQuantity());
+        }
+    }
+
+    // Returns units leased by this node but not reserved for idle hot products, and renews the heartbeat
+    // of every lease this node holds
+    @Scheduled(fixedDelayString = "${inventory.hot-front.flush-interval-ms:10000}")
+    public void returnIdleLeases() {
+        long now = System.nanoTime();
+        pools.forEach((productId, pool) -> {
+            if (now - pool.lastUsed >= idleReturnNanos) {
+                returnLease(productId, pool);
+            }
+            if (pool.persisted) {
+                UpdateResult renewed = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(pool.leaseId)),
+                        new Update().set("heartbeatAt", LocalDateTime.now()), InventoryLease.class);
+                if (renewed.getMatchedCount() == 0) {
+                    retire(productId, pool);
+                } else {
+                    pool.confirmedAt = now;
+                }
+            }
+        });
+    }
+
+    // Returns the unsold units of leases whose owner stopped renewing them
+    @Scheduled(fixedDelayString = "${inventory.hot-front.flush-interval-ms:10000}")
+    public void reconcileAbandonedLeases() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(leaseExpirySeconds);
+        Query abandoned = new Query(Criteria.where("heartbeatAt").lt(cutoff)).limit(100);
+        for (InventoryLease lease : mongoTemplate.find(abandoned, InventoryLease.class)) {
+            // Whoever removes the lease reconciles it
+            InventoryLease claimed = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(lease.getId())
+                    .and("heartbeatAt").lt(cutoff)), InventoryLease.class);
+            if (claimed == null) {
+                continue;
+            }
+            long unsold = claimed.getUnits() - soldFrom(claimed.getId());
+            if (unsold > 0) {
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(claimed.getProductId())),
+                        new Update().inc("quantity", unsold), Product.class);
+            }
+            logger.warn("Reconciled abandoned lease {} of product {} (owner {}): returned {} units",
+                    claimed.getId(), claimed.getProductId(), claimed.getOwner(), Math.max(0, unsold));
+        }
+    }
+
+    @PreDestroy
+    public void returnAllLeases() {
+        pools.forEach((productId, pool) -> {
+            returnLease(productId, pool);
+            // Everything left on the lease was sold and is accounted for by its reservations
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(pool.leaseId)), InventoryLease.class);
+        });
+    }
+
+    private LeaseResult lease(String productId, Pool pool, int quantity) {
+        if (!pool.persisted) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                mongoTemplate.insert(new InventoryLease(pool.leaseId, productId, owner, 0L, now, now));
+            } catch (DuplicateKeyException e) {
+                // Another thread of this node recorded it first
+            }
+            pool.persisted = true;
+        }
+        if (!takeFromDatabase(productId, quantity)) {
+            return LeaseResult.OUT_OF_STOCK;
+        }
+        UpdateResult recorded = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(pool.leaseId)),
+                new Update().inc("units", quantity).set("heartbeatAt", LocalDateTime.now()), InventoryLease.class);
+        if (recorded.getMatchedCount() == 0) {
+            // The lease was reconciled (this node looked dead); these units are on no lease, give them back
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(productId)),
+                    new Update().inc("quantity", quantity), Product.class);
+            retire(productId, pool);
+            return LeaseResult.RETIRED;
+        }
+        pool.confirmedAt = System.nanoTime();
+        return LeaseResult.LEASED;
+    }
+
+    private void returnLease(String productId, Pool pool) {
+        long units = pool.drain();
+        if (units > 0) {
+            // Off the lease first: a crash before the product update loses the units instead of doubling them
+            UpdateResult released = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(pool.leaseId)),
+                    new Update().inc("units", -units), InventoryLease.class);
+            if (released.getMatchedCount() == 0) {
+                retire(productId, pool);
+                return;
+            }
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(productId)),
+                    new Update().inc("quantity", units), Product.class);
+            logger.debug("Returned {} leased units of product {}", units, productId);
+        }
+    }
+
+    // The lease is gone from the database, so its units were already reconciled: drop them here
+    private void retire(String productId, Pool pool) {
+        pools.remove(productId, pool);
+        long dropped = pool.drain();
+        logger.warn("Lease {} of product {} was reconciled by another node; dropped {} local units",
+                pool.leaseId, productId, dropped);
+    }
+
+    private long soldFrom(String leaseId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("leaseId").is(leaseId)),
+                Aggregation.group("leaseId").sum("quantity").as("units"));
+        List<Document> results = mongoTemplate.aggregate(aggregation, InventoryReservation.class, Document.class)
+                .getMappedResults();
+        return results.isEmpty() ? 0 : ((Number) results.get(0).get("units")).longValue();
+    }
+
+    private boolean takeFromDatabase(String productId, int quantity) {
+        Query query = new Query(Criteria.where("_id").is(productId).and("quantity").gte(quantity));
+        return mongoTemplate.updateFirst(query, new Update().inc("quantity", -quantity), Product.class)
+                .getModifiedCount() == 1;
+    }
+
+    private enum LeaseResult {
+        LEASED, OUT_OF_STOCK, RETIRED
+    }
+
+    private static final class Pool {
+        final String leaseId;
+        final AtomicLongArray units;
+        volatile long lastUsed = System.nanoTime();
+        volatile long confirmedAt = System.nanoTime();
+        volatile boolean persisted;
+
+        Pool(String leaseId, int stripes) {
+            this.leaseId = leaseId;
+            this.units = new AtomicLongArray(stripes);
+        }
+
+        // Local units may only be sold while the lease was recently confirmed in the database
+        boolean sellable(long now, long maxSilenceNanos) {
+            return now - confirmedAt < maxSilenceNanos;
+        }
+
+        boolean take(int stripe, int quantity) {
+            while (true) {
+                long available = units.get(stripe);
+                if (available < quantity) {
+                    return false;
+                }
+                if (units.compareAndSet(stripe, available, available - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        void add(int stripe, long quantity) {
+            if (quantity > 0) {
+                units.addAndGet(stripe, quantity);
+            }
+        }
+
+        long drain() {
+            long total = 0;
+            for (int i = 0; i < units.length(); i++) {
+                total += units.getAndSet(i, 0);
+            }
+            return total;
+        }
+    }
+}
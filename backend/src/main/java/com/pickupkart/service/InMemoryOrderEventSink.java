@@ -0,0 +1,47 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Keeps the most recent dispatched events in memory, for tests and local debugging
+@Component
+@ConditionalOnProperty(name = "orders.events.memory-sink.enabled", havingValue = "true")
+public class InMemoryOrderEventSink implements OrderEventSink {
+    private final Deque<OutboxEvent> events = new ArrayDeque<>();
+
+    private final int capacity;
+
+    public InMemoryOrderEventSink(@Value("${orders.events.memory-sink.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxEvent> batch) {
+        for (OutboxEvent event : batch) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    public synchronized List<OutboxEvent> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized List<OutboxEvent> eventsFor(String orderId) {
+        return events.stream().filter(event -> orderId.equals(event.getOrderId())).toList();
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,280 @@
+
+package com.pickupkart.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.pickupkart.model.InventoryReservation;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Product;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Stock is only ever changed with conditional $inc updates, never with a read-modify-write save,
+// so concurrent orders for the same product cannot oversell it. Each order holds one reservation;
+// held stock is committed once the order is paid, or returned when it is cancelled or expires.
+@Service
+public class InventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    private static final List<InventoryReservation.ReservationStatus> RELEASABLE = List.of(
+            InventoryReservation.ReservationStatus.HELD, InventoryReservation.ReservationStatus.COMMITTED);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private HotInventoryFront hotInventoryFront;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    @Value("${inventory.reservation.ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    @Value("${inventory.reservation.sweep-batch-size:200}")
+    private int sweepBatchSize;
+
+    public boolean reserve(String orderId, String productId, int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Error: Quantity must be positive.");
+        }
+        InventoryReservation reservation = new InventoryReservation();
+        reservation.setOrderId(orderId);
+        reservation.setProductId(productId);
+        reservation.setQuantity(quantity);
+        if (!takeStock(List.of(reservation))) {
+            return false;
+        }
+
+        reservation.setStatus(InventoryReservation.ReservationStatus.HELD);
+        reservation.onCreate();
+        reservation.setExpiresAt(reservation.getCreatedAt().plusMinutes(reservationTtlMinutes));
+        try {
+            mongoTemplate.insert(reservation);
+        } catch (RuntimeException e) {
+            // Duplicate reservation for this order, or the write failed: give the stock back,
+            // unless a transaction is active, whose rollback already does
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                giveBack(reservation);
+            }
+            if (e instanceof DuplicateKeyException) {
+                throw new RuntimeException("Error: Stock is already reserved for this order.");
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    // Reserves stock for many new orders: one conditional $inc per product for the whole batch, falling
+    // back to order by order when a product cannot cover all of them. Returns the reserved order ids.
+    public Set<String> reserveAll(List<InventoryReservation> requests) {
+        Map<String, List<InventoryReservation>> byProduct = new LinkedHashMap<>();
+        for (InventoryReservation request : requests) {
+            byProduct.computeIfAbsent(request.getProductId(), k -> new ArrayList<>()).add(request);
+        }
+
+        List<InventoryReservation> reserved = new ArrayList<>(requests.size());
+        byProduct.forEach((productId, productRequests) -> {
+            if (productRequests.size() > 1 && takeStock(productRequests)) {
+                reserved.addAll(productRequests);
+                return;
+            }
+            for (InventoryReservation request : productRequests) {
+                if (takeStock(List.of(request))) {
+                    reserved.add(request);
+                }
+            }
+        });
+        if (reserved.isEmpty()) {
+            return Set.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryReservation.class);
+        for (InventoryReservation reservation : reserved) {
+            // Ids are assigned here so this call can tell its own writes from a concurrent call's
+            reservation.setId(new ObjectId().toHexString());
+            reservation.setStatus(InventoryReservation.ReservationStatus.HELD);
+            reservation.onCreate();
+            reservation.setExpiresAt(now.plusMinutes(reservationTtlMinutes));
+            bulk.insert(reservation);
+        }
+        Set<Integer> failed = new HashSet<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> failed.add(error.getIndex()));
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof MongoBulkWriteException bulkError) {
+                bulkError.getWriteErrors().forEach(error -> failed.add(error.getIndex()));
+            } else {
+                // No per-write result: whatever of this call's own ids is not stored was not written
+                Query query = new Query(Criteria.where("_id").in(reserved.stream().map(InventoryReservation::getId).toList()));
+                query.fields().include("_id");
+                Set<String> written = new HashSet<>();
+                mongoTemplate.find(query, InventoryReservation.class).forEach(reservation -> written.add(reservation.getId()));
+                for (int i = 0; i < reserved.size(); i++) {
+                    if (!written.contains(reserved.get(i).getId())) {
+                        failed.add(i);
+                    }
+                }
+            }
+        }
+
+        // A reservation that was not written (e.g. a concurrent call already holds one for the order)
+        // gives back the stock this call took for it
+        Set<String> reservedOrderIds = new HashSet<>();
+        for (int i = 0; i < reserved.size(); i++) {
+            if (failed.contains(i)) {
+                giveBack(reserved.get(i));
+            } else {
+                reservedOrderIds.add(reserved.get(i).getOrderId());
+            }
+        }
+        return reservedOrderIds;
+    }
+
+    // Held stock becomes a sale; returns false if the reservation already expired or was released
+    public boolean commit(String orderId) {
+        return transition(orderId, List.of(InventoryReservation.ReservationStatus.HELD),
+                InventoryReservation.ReservationStatus.COMMITTED) != null;
+    }
+
+    public void commitAll(Collection<String> orderIds) {
+        Query query = new Query(Criteria.where("orderId").in(orderIds)
+                .and("status").is(InventoryReservation.ReservationStatus.HELD));
+        Update update = new Update().set("status", InventoryReservation.ReservationStatus.COMMITTED)
+                .set("updatedAt", LocalDateTime.now());
+        mongoTemplate.updateMulti(query, update, InventoryReservation.class);
+    }
+
+    // Returns the stock of a held or committed reservation, e.g. when its order is cancelled
+    public boolean release(String orderId) {
+        InventoryReservation released = transition(orderId, RELEASABLE, InventoryReservation.ReservationStatus.RELEASED);
+        if (released == null) {
+            return false;
+        }
+        returnStock(released.getProductId(), released.getQuantity());
+        return true;
+    }
+
+    // Releases the reservations of many orders, returning stock with one $inc per product
+    public void releaseAll(Collection<String> orderIds) {
+        Query query = new Query(Criteria.where("orderId").in(orderIds).and("status").in(RELEASABLE));
+        query.fields().include("status", "productId", "quantity");
+        Map<String, Integer> returned = new HashMap<>();
+        for (InventoryReservation reservation : mongoTemplate.find(query, InventoryReservation.class)) {
+            Query held = new Query(Criteria.where("_id").is(reservation.getId()).and("status").is(reservation.getStatus()));
+            Update update = new Update().set("status", InventoryReservation.ReservationStatus.RELEASED)
+                    .set("updatedAt", LocalDateTime.now());
+            if (mongoTemplate.updateFirst(held, update, InventoryReservation.class).getModifiedCount() == 1) {
+                returned.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            }
+        }
+        if (!returned.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            returned.forEach((productId, quantity) -> bulk.updateOne(
+                    new Query(Criteria.where("_id").is(productId)), new Update().inc("quantity", quantity)));
+            bulk.execute();
+        }
+    }
+
+    // Releases reservations of orders that were never paid and cancels those orders if still PENDING
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    public void releaseExpired() {
+        while (true) {
+            Query query = new Query(Criteria.where("status").is(InventoryReservation.ReservationStatus.HELD)
+                    .and("expiresAt").lt(LocalDateTime.now()))
+                    .with(Sort.by("expiresAt"))
+                    .limit(sweepBatchSize);
+            query.fields().include("orderId");
+            List<InventoryReservation> expired = mongoTemplate.find(query, InventoryReservation.class);
+            for (InventoryReservation reservation : expired) {
+                // Still HELD only: the order may have been paid since the query ran
+                InventoryReservation released = transition(reservation.getOrderId(),
+                        List.of(InventoryReservation.ReservationStatus.HELD), InventoryReservation.ReservationStatus.RELEASED);
+                if (released != null) {
+                    returnStock(released.getProductId(), released.getQuantity());
+                    cancelIfPending(released.getOrderId());
+                }
+            }
+            if (expired.size() < sweepBatchSize) {
+                break;
+            }
+        }
+    }
+
+    // Takes the stock for reservations of one product; stock served by the hot front records its lease
+    private boolean takeStock(List<InventoryReservation> reservations) {
+        String productId = reservations.get(0).getProductId();
+        int quantity = reservations.stream().mapToInt(InventoryReservation::getQuantity).sum();
+        // Units taken from the in-memory front cannot be rolled back with a transaction
+        if (hotInventoryFront.isHot(productId) && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            String leaseId = hotInventoryFront.tryReserve(productId, quantity);
+            reservations.forEach(reservation -> reservation.setLeaseId(leaseId));
+            return leaseId != null;
+        }
+        Query query = new Query(Criteria.where("_id").is(productId).and("quantity").gte(quantity));
+        return mongoTemplate.updateFirst(query, new Update().inc("quantity", -quantity), Product.class)
+                .getModifiedCount() == 1;
+    }
+
+    // Undoes takeStock for a reservation that was not written
+    private void giveBack(InventoryReservation reservation) {
+        if (reservation.getLeaseId() != null) {
+            hotInventoryFront.giveBack(reservation);
+        } else {
+            returnStock(reservation.getProductId(), reservation.getQuantity());
+        }
+    }
+
+    private void returnStock(String productId, int quantity) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(productId)),
+                new Update().inc("quantity", quantity), Product.class);
+    }
+
+    // Guarded by the current status, so a reservation is committed or released exactly once
+    private InventoryReservation transition(String orderId, List<InventoryReservation.ReservationStatus> from,
+                                            InventoryReservation.ReservationStatus target) {
+        Query query = new Query(Criteria.where("orderId").is(orderId).and("status").in(from));
+        Update update = new Update().set("status", target).set("updatedAt", LocalDateTime.now());
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                InventoryReservation.class);
+    }
+
+    private void cancelIfPending(String orderId) {
+        Query query = new Query(Criteria.where("_id").is(orderId).and("status").is(Order.OrderStatus.PENDING));
+        query.fields().include("customerId", "status", "version");
+        Update update = new Update().set("status", Order.OrderStatus.CANCELLED).set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        Order cancelled = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Order.class);
+        if (cancelled != null) {
+            orderEventOutbox.orderStatusChanged(cancelled);
+            logger.info("Cancelled unpaid order {} after its stock reservation expired", orderId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+
+package com.pickupkart.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+
+// Position in a (date desc, id desc) ordered list, handed to clients as an opaque token.
+// Paging continues strictly after this position, so inserts between pages never shift results.
+public record KeysetCursor(LocalDateTime date, String id) {
+
+    public String encode() {
+        String raw = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null for an absent token (first page); malformed tokens raise IllegalArgumentException
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Error: Invalid page cursor.", e);
+        }
+    }
+}
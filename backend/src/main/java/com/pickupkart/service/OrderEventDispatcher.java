@@ -0,0 +1,264 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Delivers outbox events to every OrderEventSink, at least once and in order per order id. One
+// instance at a time dispatches, holding a lease in the locks collection. Pending events are read
+// in _id order; for each order in the batch all its pending events are then taken in sequence order,
+// from the one after the last dispatched. An order whose next number is missing (written on another
+// node whose clock is behind, or not yet committed) is held back until it shows up, or for at most
+// sequence-wait-ms, after which the gap is skipped. The events are delivered as one batch; if a sink fails, the batch is retried order by order and
+// an order whose events still fail is held back (its later events with it) until its retry is due.
+// After max-attempts those events are parked so the order does not block forever. The lease is renewed
+// before every batch, and a dispatcher that lost it stops at once instead of racing the new holder.
+@Service
+public class OrderEventDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventDispatcher.class);
+
+    private static final String LOCKS = "locks";
+
+    private static final String LEASE_ID = "order-event-dispatcher";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private List<OrderEventSink> sinks;
+
+    @Value("${orders.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${orders.events.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${orders.events.retry-backoff-ms:1000}")
+    private long retryBackoffMillis;
+
+    @Value("${orders.events.max-backoff-ms:300000}")
+    private long maxBackoffMillis;
+
+    @Value("${orders.events.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${orders.events.sequence-wait-ms:10000}")
+    private long sequenceWaitMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private boolean leaseHeld;
+
+    // Orders held back until their failed events are due again; only touched by the scheduler thread
+    private final Map<String, LocalDateTime> heldOrders = new HashMap<>();
+
+    @Scheduled(fixedDelayString = "${orders.events.dispatch-interval-ms:250}")
+    public void dispatch() {
+        if (!renewLease()) {
+            leaseHeld = false;
+            return;
+        }
+        if (!leaseHeld) {
+            // Another instance may have left failed events behind
+            loadHeldOrders();
+            leaseHeld = true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        heldOrders.values().removeIf(until -> !until.isAfter(now));
+
+        while (true) {
+            Query query = new Query(Criteria.where("state").is(OutboxEvent.State.PENDING)
+                    .and("orderId").nin(heldOrders.keySet()))
+                    .with(Sort.by("_id"))
+                    .limit(batchSize);
+            List<OutboxEvent> batch = mongoTemplate.find(query, OutboxEvent.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            // Empty when every order in the batch waits for a missing event; those are now held, so go on
+            List<OutboxEvent> ready = inSequence(batch, now);
+            if (!ready.isEmpty() && deliver(ready) == 0 || batch.size() < batchSize) {
+                break;
+            }
+            if (!renewLease()) {
+                logger.info("Order events: lease taken over by another instance, stopping dispatch");
+                leaseHeld = false;
+                break;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (leaseHeld) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(LEASE_ID).and("owner").is(owner)),
+                    new Update().set("expiresAt", LocalDateTime.now()), LOCKS);
+        }
+    }
+
+    // Returns the number of events delivered
+    private int deliver(List<OutboxEvent> batch) {
+        try {
+            deliverToSinks(batch);
+            markDispatched(batch);
+            return batch.size();
+        } catch (Exception e) {
+            logger.debug("Order events: batch delivery failed, retrying order by order", e);
+        }
+
+        Map<String, List<OutboxEvent>> byOrder = new LinkedHashMap<>();
+        batch.forEach(event -> byOrder.computeIfAbsent(event.getOrderId(), k -> new ArrayList<>()).add(event));
+        int delivered = 0;
+        for (List<OutboxEvent> events : byOrder.values()) {
+            try {
+                deliverToSinks(events);
+                markDispatched(events);
+                delivered += events.size();
+            } catch (Exception e) {
+                markFailed(events, e);
+            }
+        }
+        return delivered;
+    }
+
+    // The batch's orders, each with all its pending events up to the first missing number. Events
+    // without a sequence (written before sequences existed) keep their _id order.
+    private List<OutboxEvent> inSequence(List<OutboxEvent> batch, LocalDateTime now) {
+        Map<String, List<OutboxEvent>> byOrder = new LinkedHashMap<>();
+        Set<String> sequenced = new HashSet<>();
+        for (OutboxEvent event : batch) {
+            List<OutboxEvent> events = byOrder.computeIfAbsent(event.getOrderId(), k -> new ArrayList<>());
+            if (event.getSequence() == null) {
+                events.add(event);
+            } else {
+                sequenced.add(event.getOrderId());
+            }
+        }
+        if (sequenced.isEmpty()) {
+            return batch;
+        }
+
+        Map<String, Long> dispatched = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("_id").in(sequenced)), Document.class, OrderEventOutbox.SEQUENCES)
+                .forEach(counter -> dispatched.put(counter.getString("_id"),
+                        counter.get("dispatched") instanceof Number number ? number.longValue() : 0L));
+        Map<String, List<OutboxEvent>> pending = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("orderId").in(sequenced).and("state").is(OutboxEvent.State.PENDING)
+                        .and("sequence").ne(null))
+                        .with(Sort.by("orderId", "sequence")), OutboxEvent.class)
+                .forEach(event -> pending.computeIfAbsent(event.getOrderId(), k -> new ArrayList<>()).add(event));
+
+        for (String orderId : sequenced) {
+            long expected = dispatched.getOrDefault(orderId, 0L) + 1;
+            for (OutboxEvent event : pending.getOrDefault(orderId, List.of())) {
+                if (event.getSequence() > expected) {
+                    LocalDateTime giveUpAt = event.getCreatedAt() != null
+                            ? event.getCreatedAt().plusNanos(sequenceWaitMillis * 1_000_000) : now;
+                    if (giveUpAt.isAfter(now)) {
+                        LocalDateTime retryAt = now.plusNanos(retryBackoffMillis * 1_000_000);
+                        heldOrders.put(orderId, retryAt.isBefore(giveUpAt) ? retryAt : giveUpAt);
+                        break;
+                    }
+                    logger.warn("Order events: order {} skipped event(s) {} to {} that never arrived",
+                            orderId, expected, event.getSequence() - 1);
+                }
+                byOrder.get(orderId).add(event);
+                expected = Math.max(expected, event.getSequence() + 1);
+            }
+        }
+        List<OutboxEvent> ready = new ArrayList<>();
+        byOrder.values().forEach(ready::addAll);
+        return ready;
+    }
+
+    private void deliverToSinks(List<OutboxEvent> events) throws Exception {
+        for (OrderEventSink sink : sinks) {
+            sink.deliver(events);
+        }
+    }
+
+    private void markDispatched(List<OutboxEvent> events) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(events.stream().map(OutboxEvent::getId).toList())),
+                new Update().set("state", OutboxEvent.State.DISPATCHED).set("dispatchedAt", LocalDateTime.now()),
+                OutboxEvent.class);
+        advanceSequences(events);
+    }
+
+    // Records the last number passed per order, so the order's next event is not taken for a gap
+    private void advanceSequences(List<OutboxEvent> events) {
+        Map<String, Long> last = new HashMap<>();
+        events.stream().filter(event -> event.getSequence() != null)
+                .forEach(event -> last.merge(event.getOrderId(), event.getSequence(), Math::max));
+        if (!last.isEmpty()) {
+            BulkOperations counters = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderEventOutbox.SEQUENCES);
+            last.forEach((orderId, sequence) -> counters.updateOne(new Query(Criteria.where("_id").is(orderId)),
+                    new Update().max("dispatched", sequence)));
+            counters.execute();
+        }
+    }
+
+    private void markFailed(List<OutboxEvent> events, Exception error) {
+        String orderId = events.get(0).getOrderId();
+        int attempts = events.get(0).getAttempts() != null ? events.get(0).getAttempts() + 1 : 1;
+        Query query = new Query(Criteria.where("_id").in(events.stream().map(OutboxEvent::getId).toList()));
+        Update update = new Update().set("attempts", attempts).set("lastError", String.valueOf(error.getMessage()));
+
+        if (attempts >= maxAttempts) {
+            mongoTemplate.updateMulti(query, update.set("state", OutboxEvent.State.PARKED), OutboxEvent.class);
+            advanceSequences(events);
+            logger.warn("Order events: parked {} event(s) of order {} after {} attempts", events.size(), orderId, attempts, error);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMillis, retryBackoffMillis << Math.min(attempts - 1, 20));
+        LocalDateTime retryAt = LocalDateTime.now().plusNanos(backoff * 1_000_000);
+        mongoTemplate.updateMulti(query, update.set("nextAttemptAt", retryAt), OutboxEvent.class);
+        heldOrders.put(orderId, retryAt);
+    }
+
+    private void loadHeldOrders() {
+        heldOrders.clear();
+        Query query = new Query(Criteria.where("state").is(OutboxEvent.State.PENDING)
+                .and("nextAttemptAt").gt(LocalDateTime.now()));
+        query.fields().include("orderId", "nextAttemptAt");
+        mongoTemplate.find(query, OutboxEvent.class)
+                .forEach(event -> heldOrders.merge(event.getOrderId(), event.getNextAttemptAt(),
+                        (a, b) -> a.isAfter(b) ? a : b));
+    }
+
+    // Takes or extends the lease; fails while another instance holds an unexpired one
+    private boolean renewLease() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().andOperator(Criteria.where("_id").is(LEASE_ID),
+                new Criteria().orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(now))));
+        try {
+            mongoTemplate.upsert(query, new Update().set("owner", owner).set("expiresAt", now.plusSeconds(leaseSeconds)), LOCKS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.OutboxEvent;
+import com.pickupkart.model.Payment;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Records order and payment changes in the outbox for OrderEventDispatcher. Inside a transaction
+// (checkout on a replica set) the event commits or rolls back with the change; elsewhere it is
+// written right after the change succeeds. Each event takes the next number from its order's counter
+// in order_event_sequences; ids come from the writing node's clock and may disagree across nodes, so
+// the dispatcher orders an order's events by that number instead.
+@Service
+public class OrderEventOutbox {
+    public static final String SEQUENCES = "order_event_sequences";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public void orderPlaced(Order order) {
+        mongoTemplate.insert(orderEvent(OutboxEvent.EventType.ORDER_PLACED, order, nextSequence(order.getId())));
+    }
+
+    // The orders were just created, so each counter starts here: one insert instead of a round trip per order
+    public void ordersPlaced(Collection<Order> orders) {
+        List<OutboxEvent> events = new ArrayList<>(orders.size());
+        List<Document> sequences = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            events.add(orderEvent(OutboxEvent.EventType.ORDER_PLACED, order, 1L));
+            sequences.add(new Document("_id", order.getId()).append("next", 1L).append("dispatched", 0L));
+        }
+        if (!sequences.isEmpty()) {
+            mongoTemplate.insert(sequences, SEQUENCES);
+        }
+        insertAll(events);
+    }
+
+    // The order as returned by the update, with at least its customerId, status and version
+    public void orderStatusChanged(Order order) {
+        mongoTemplate.insert(orderEvent(OutboxEvent.EventType.ORDER_STATUS_CHANGED, order, nextSequence(order.getId())));
+    }
+
+    public void orderStatusChanged(Collection<String> orderIds, Order.OrderStatus status) {
+        // Bulk updates return no documents; one $in read supplies the customers (and versions) for routing
+        Query query = new Query(Criteria.where("_id").in(orderIds));
+        query.fields().include("customerId", "version");
+        Map<String, Order> orders = new HashMap<>();
+        mongoTemplate.find(query, Order.class).forEach(order -> orders.put(order.getId(), order));
+
+        List<OutboxEvent> events = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Order order = orders.get(orderId);
+            // A counter round trip per order: numbers must come from the counter to be unique
+            events.add(event(orderId, order != null ? order.getCustomerId() : null, OutboxEvent.EventType.ORDER_STATUS_CHANGED,
+                    orderId, status, order != null ? order.getVersion() : null, nextSequence(orderId)));
+        }
+        insertAll(events);
+    }
+
+    public void paymentCreated(Payment payment) {
+        mongoTemplate.insert(paymentEvent(OutboxEvent.EventType.PAYMENT_CREATED, payment, nextSequence(payment.getOrderId())));
+    }
+
+    public void paymentStatusChanged(Payment payment) {
+        mongoTemplate.insert(paymentEvent(OutboxEvent.EventType.PAYMENT_STATUS_CHANGED, payment,
+                nextSequence(payment.getOrderId())));
+    }
+
+    // Inside a transaction two writers of the same order conflict on the counter, so numbers follow commit order
+    private Long nextSequence(String orderId) {
+        if (orderId == null) {
+            return null;
+        }
+        Document counter = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(orderId)),
+                new Update().inc("next", 1L).setOnInsert("dispatched", 0L),
+                FindAndModifyOptions.options().returnNew(true).upsert(true), Document.class, SEQUENCES);
+        return counter.get("next", Number.class).longValue();
+    }
+
+    private void insertAll(List<OutboxEvent> events) {
+        if (!events.isEmpty()) {
+            mongoTemplate.insert(events, OutboxEvent.class);
+        }
+    }
+
+    private static OutboxEvent orderEvent(OutboxEvent.EventType type, Order order, Long sequence) {
+        return event(order.getId(), order.getCustomerId(), type, order.getId(), order.getStatus(), order.getVersion(), sequence);
+    }
+
+    private static OutboxEvent paymentEvent(OutboxEvent.EventType type, Payment payment, Long sequence) {
+        return event(payment.getOrderId(), payment.getCustomerId(), type, payment.getId(), payment.getStatus(), null, sequence);
+    }
+
+    private static OutboxEvent event(String orderId, String customerId, OutboxEvent.EventType type, String subjectId,
+                                     Enum<?> status, Long version, Long sequence) {
+        OutboxEvent event = new OutboxEvent();
+        // Assigned here rather than by the server, so ids follow the order of the writes in this process
+        event.setId(new ObjectId().toHexString());
+        event.setOrderId(orderId);
+        event.setCustomerId(customerId);
+        event.setType(type);
+        event.setSubjectId(subjectId);
+        event.setStatus(status != null ? status.name() : null);
+        event.setVersion(version);
+        event.setSequence(sequence);
+        event.setState(OutboxEvent.State.PENDING);
+        event.setAttempts(0);
+        event.onCreate();
+        return event;
+    }
+}
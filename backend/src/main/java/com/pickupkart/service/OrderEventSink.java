@@ -0,0 +1,12 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+
+import java.util.List;
+
+// Receives dispatched order events in batches. Delivery is at least once: a batch that throws is
+// retried, order by order, so a sink may see an event again and should tolerate duplicates by id.
+public interface OrderEventSink {
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,396 @@
+
+package com.pickupkart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.pickupkart.model.InventoryReservation;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Product;
+import com.pickupkart.model.User;
+import com.pickupkart.payload.request.IngestOrderLine;
+import com.pickupkart.payload.response.IngestLineResult;
+import com.pickupkart.payload.response.IngestReport;
+import com.pickupkart.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Ingests partner order batches sent as NDJSON. Lines are validated against the in-memory catalog and
+// courier rate table, then written in chunks with one unordered bulk insert each. The unique
+// idempotencyKey index turns a retried line into a DUPLICATE result instead of a second order, and
+// stock for each chunk is reserved with one conditional $inc per product. An attempt that died between
+// the insert and the reservation is completed by the retry, or its order is cancelled if none comes.
+@Service
+public class OrderIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIngestionService.class);
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private CourierQuoteService courierQuoteService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    @Value("${orders.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${orders.ingest.max-lines:100000}")
+    private int maxLines;
+
+    @Value("${inventory.reservation.ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    public IngestReport ingest(String partnerId, InputStream body) throws IOException {
+        User partner = userRepository.findById(partnerId)
+                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        List<IngestLineResult> results = new ArrayList<>();
+        Set<String> seenKeys = new HashSet<>();
+        List<Pending> chunk = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String text;
+        int lineNumber = 0;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (lineNumber > maxLines) {
+                results.add(new IngestLineResult(lineNumber, null, IngestLineResult.Outcome.INVALID, null,
+                        "Error: A batch is limited to " + maxLines + " lines; the rest was not read."));
+                break;
+            }
+
+            IngestOrderLine line;
+            try {
+                line = objectMapper.readValue(text, IngestOrderLine.class);
+            } catch (JsonProcessingException e) {
+                results.add(new IngestLineResult(lineNumber, null, IngestLineResult.Outcome.INVALID, null,
+                        "Error: Malformed line."));
+                continue;
+            }
+            String problem = validate(line);
+            if (problem != null) {
+                results.add(new IngestLineResult(lineNumber, line.getIdempotencyKey(), IngestLineResult.Outcome.INVALID, null, problem));
+                continue;
+            }
+            if (!seenKeys.add(line.getIdempotencyKey())) {
+                results.add(new IngestLineResult(lineNumber, line.getIdempotencyKey(), IngestLineResult.Outcome.DUPLICATE, null,
+                        "Error: Idempotency key repeated in this batch."));
+                continue;
+            }
+
+            chunk.add(new Pending(lineNumber, line));
+            if (chunk.size() == batchSize) {
+                writeChunk(partner, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(partner, chunk, results);
+        }
+
+        results.sort((a, b) -> Integer.compare(a.getLine(), b.getLine()));
+        int created = 0;
+        int duplicates = 0;
+        for (IngestLineResult result : results) {
+            if (result.getOutcome() == IngestLineResult.Outcome.CREATED) {
+                created++;
+            } else if (result.getOutcome() == IngestLineResult.Outcome.DUPLICATE) {
+                duplicates++;
+            }
+        }
+        return new IngestReport(created, duplicates, results.size() - created - duplicates, results);
+    }
+
+    private String validate(IngestOrderLine line) {
+        if (!StringUtils.hasText(line.getIdempotencyKey()) || line.getIdempotencyKey().length() > MAX_KEY_LENGTH) {
+            return "Error: idempotencyKey is required (at most " + MAX_KEY_LENGTH + " characters).";
+        }
+        if (line.getProductId() == null || catalogCache.product(line.getProductId()).isEmpty()) {
+            return "Error: Product is not found.";
+        }
+        if (line.getCourierId() == null || courierQuoteService.snapshot(line.getCourierId()).isEmpty()) {
+            return "Error: Courier is not found.";
+        }
+        if (line.getQuantity() == null || line.getQuantity() <= 0) {
+            return "Error: Quantity must be positive.";
+        }
+        return null;
+    }
+
+    private void writeChunk(User partner, List<Pending> chunk, List<IngestLineResult> results) {
+        // One $in read for all customers named in the chunk
+        Set<String> customerIds = new HashSet<>();
+        chunk.forEach(pending -> {
+            if (pending.line.getCustomerId() != null) {
+                customerIds.add(pending.line.getCustomerId());
+            }
+        });
+        Map<String, User> customers = new HashMap<>();
+        if (!customerIds.isEmpty()) {
+            userRepository.findAllById(customerIds).forEach(user -> customers.put(user.getId(), user));
+        }
+
+        List<Pending> accepted = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            IngestOrderLine line = pending.line;
+            User customer = line.getCustomerId() != null ? customers.get(line.getCustomerId()) : partner;
+            if (customer == null) {
+                results.add(pending.result(IngestLineResult.Outcome.INVALID, null, "Error: Customer is not found."));
+                continue;
+            }
+            try {
+                pending.order = buildOrder(partner, customer, line);
+            } catch (RuntimeException e) {
+                results.add(pending.result(IngestLineResult.Outcome.INVALID, null, e.getMessage()));
+                continue;
+            }
+            accepted.add(pending);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, String> failures = insert(accepted);
+        List<Pending> inserted = new ArrayList<>(accepted.size());
+        List<Pending> duplicates = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            String failure = failures.get(i);
+            if (failure == null) {
+                inserted.add(accepted.get(i));
+            } else if (failure.isEmpty()) {
+                duplicates.add(accepted.get(i));
+            } else {
+                results.add(accepted.get(i).result(IngestLineResult.Outcome.INVALID, null, "Error: " + failure));
+            }
+        }
+        resolveDuplicates(duplicates, results);
+        reserve(inserted, results);
+    }
+
+    // Cancels orders left PENDING without a reservation by an attempt that stopped between the insert and
+    // the reservation and was never retried; a reservation is never held longer than its TTL anyway
+    @Scheduled(fixedDelayString = "${orders.ingest.orphan-sweep-interval-ms:300000}")
+    public void cancelOrphanedOrders() {
+        Query query = new Query(Criteria.where("status").is(Order.OrderStatus.PENDING)
+                .and("orderDate").lt(LocalDateTime.now().minusMinutes(reservationTtlMinutes))
+                .and("idempotencyKey").exists(true))
+                .with(Sort.by("orderDate"))
+                .limit(batchSize);
+        query.fields().include("_id");
+        List<String> orderIds = mongoTemplate.find(query, Order.class).stream().map(Order::getId).toList();
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Set<String> reserved = reservedOrderIds(orderIds);
+        for (String orderId : orderIds) {
+            if (reserved.contains(orderId)) {
+                continue;
+            }
+            Query pending = new Query(Criteria.where("_id").is(orderId).and("status").is(Order.OrderStatus.PENDING));
+            pending.fields().include("customerId", "status", "version");
+            Update update = new Update().set("status", Order.OrderStatus.CANCELLED).set("updatedAt", LocalDateTime.now())
+                    .inc("version", 1);
+            Order cancelled = mongoTemplate.findAndModify(pending, update, FindAndModifyOptions.options().returnNew(true),
+                    Order.class);
+            if (cancelled != null) {
+                orderEventOutbox.orderStatusChanged(cancelled);
+                logger.warn("Cancelled ingested order {}: it was never reserved and its batch was not retried", orderId);
+            }
+        }
+    }
+
+    // Reserves stock for orders of this batch; orders without stock are removed again
+    private void reserve(List<Pending> orders, List<IngestLineResult> results) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<InventoryReservation> reservations = new ArrayList<>(orders.size());
+        for (Pending pending : orders) {
+            InventoryReservation reservation = new InventoryReservation();
+            reservation.setOrderId(pending.order.getId());
+            reservation.setProductId(pending.order.getProductId());
+            reservation.setQuantity(pending.order.getQuantity());
+            reservations.add(reservation);
+        }
+        Set<String> reserved = inventoryService.reserveAll(reservations);
+        // A concurrent retry of the same line may have reserved the order first; it is not out of stock
+        List<String> notReserved = orders.stream().map(pending -> pending.order.getId())
+                .filter(orderId -> !reserved.contains(orderId)).toList();
+        Set<String> reservedElsewhere = notReserved.isEmpty() ? Set.of() : reservedOrderIds(notReserved);
+
+        List<String> outOfStock = new ArrayList<>();
+        List<Order> created = new ArrayList<>(reserved.size());
+        for (Pending pending : orders) {
+            String orderId = pending.order.getId();
+            if (reserved.contains(orderId)) {
+                created.add(pending.order);
+                results.add(pending.result(IngestLineResult.Outcome.CREATED, orderId, null));
+            } else if (reservedElsewhere.contains(orderId)) {
+                results.add(pending.result(IngestLineResult.Outcome.CREATED, orderId, null));
+            } else {
+                outOfStock.add(orderId);
+                results.add(pending.result(IngestLineResult.Outcome.OUT_OF_STOCK, null,
+                        "Error: Product " + pending.order.getProduct().getName() + " is out of stock."));
+            }
+        }
+        // Orders without stock are not kept, so a later retry of the same key can still succeed
+        if (!outOfStock.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(outOfStock)), Order.class);
+        }
+        if (!created.isEmpty()) {
+            orderEventOutbox.ordersPlaced(created);
+        }
+    }
+
+    private Order buildOrder(User partner, User customer, IngestOrderLine line) {
+        Product product = catalogCache.product(line.getProductId())
+                .orElseThrow(() -> new RuntimeException("Error: Product is not found."));
+        Order.CourierSnapshot courier = courierQuoteService.snapshot(line.getCourierId())
+                .orElseThrow(() -> new RuntimeException("Error: Courier is not found."));
+        double distanceKm = line.getDistanceKm() != null ? line.getDistanceKm() : OrderService.DEFAULT_DISTANCE_KM;
+        BigDecimal deliveryCost = courierQuoteService.deliveryCost(courier.getId(), distanceKm, line.getQuantity());
+
+        Order order = new Order();
+        // Ids are assigned here so the bulk insert needs no read-back
+        order.setId(new ObjectId().toHexString());
+        order.setVersion(0L);
+        order.setIdempotencyKey(partner.getId() + ":" + line.getIdempotencyKey());
+        order.attachCustomer(customer);
+        order.attachProduct(product);
+        order.attachCourier(courier);
+        order.setQuantity(line.getQuantity());
+        order.setAmount(product.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())).add(deliveryCost));
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setCustomCourierName(line.getCustomCourierName());
+        order.onCreate();
+        return order;
+    }
+
+    // Unordered bulk insert; returns failures by position: "" for a duplicate key, otherwise the error
+    private Map<Integer, String> insert(List<Pending> accepted) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        accepted.forEach(pending -> bulk.insert(pending.order));
+        Map<Integer, String> failures = new HashMap<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error.getCode() == DUPLICATE_KEY ? "" : error.getMessage());
+            }
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof MongoBulkWriteException bulkError)) {
+                throw e;
+            }
+            for (BulkWriteError error : bulkError.getWriteErrors()) {
+                failures.put(error.getIndex(), error.getCode() == DUPLICATE_KEY ? "" : error.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    // Points each duplicate line at the order stored by the earlier attempt. If that attempt stopped between
+    // the insert and the reservation, its order is still PENDING with no reservation: reserve it now
+    private void resolveDuplicates(List<Pending> duplicates, List<IngestLineResult> results) {
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        Query query = new Query(Criteria.where("idempotencyKey")
+                .in(duplicates.stream().map(pending -> pending.order.getIdempotencyKey()).toList()));
+        query.fields().include("idempotencyKey", "customerId", "productId", "product", "quantity", "status", "version");
+        Map<String, Order> existing = new HashMap<>();
+        mongoTemplate.find(query, Order.class).forEach(order -> existing.put(order.getIdempotencyKey(), order));
+        Set<String> reserved = reservedOrderIds(existing.values().stream()
+                .filter(order -> order.getStatus() == Order.OrderStatus.PENDING)
+                .map(Order::getId)
+                .toList());
+
+        List<Pending> unreserved = new ArrayList<>();
+        for (Pending pending : duplicates) {
+            Order order = existing.get(pending.order.getIdempotencyKey());
+            if (order != null && order.getStatus() == Order.OrderStatus.PENDING && !reserved.contains(order.getId())) {
+                pending.order = order;
+                unreserved.add(pending);
+            } else {
+                results.add(pending.result(IngestLineResult.Outcome.DUPLICATE, order != null ? order.getId() : null, null));
+            }
+        }
+        reserve(unreserved, results);
+    }
+
+    // Orders that have a reservation in any state
+    private Set<String> reservedOrderIds(Collection<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = new Query(Criteria.where("orderId").in(orderIds));
+        query.fields().include("orderId");
+        Set<String> reserved = new HashSet<>();
+        mongoTemplate.find(query, InventoryReservation.class).forEach(reservation -> reserved.add(reservation.getOrderId()));
+        return reserved;
+    }
+
+    private static final class Pending {
+        final int lineNumber;
+        final IngestOrderLine line;
+        Order order;
+
+        Pending(int lineNumber, IngestOrderLine line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        IngestLineResult result(IngestLineResult.Outcome outcome, String orderId, String error) {
+            return new IngestLineResult(lineNumber, line.getIdempotencyKey(), outcome, orderId, error);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Product;
+import com.pickupkart.model.User;
+import com.pickupkart.payload.request.PlaceOrderRequest;
+import com.pickupkart.repository.OrderRepository;
+import com.pickupkart.repository.ProductRepository;
+import com.pickupkart.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+@Service
+public class OrderService {
+    // Distance quoted when the booking form does not send one, as in the seed data
+    static final double DEFAULT_DISTANCE_KM = 10;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CourierQuoteService courierQuoteService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    // Saves a PENDING order and holds its stock; the order is removed again if the stock is gone
+    public Order placeOrder(String customerId, PlaceOrderRequest request) {
+        Order order = orderRepository.insert(buildOrder(customerId, request));
+
+        boolean reserved;
+        try {
+            reserved = inventoryService.reserve(order.getId(), order.getProductId(), order.getQuantity());
+        } catch (RuntimeException e) {
+            orderRepository.deleteById(order.getId());
+            throw e;
+        }
+        if (!reserved) {
+            orderRepository.deleteById(order.getId());
+            throw outOfStock(order);
+        }
+        orderEventOutbox.orderPlaced(order);
+        return order;
+    }
+
+    // Validates the request and prices the order; nothing is written
+    public Order buildOrder(String customerId, PlaceOrderRequest request) {
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            throw new RuntimeException("Error: Quantity must be positive.");
+        }
+        User customer = userRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        Product product = productRepository.findById(request.getProductId())
+                .orElseThrow(() -> new RuntimeException("Error: Product is not found."));
+        Order.CourierSnapshot courier = courierQuoteService.snapshot(request.getCourierId())
+                .orElseThrow(() -> new RuntimeException("Error: Courier is not found."));
+        double distanceKm = request.getDistanceKm() != null ? request.getDistanceKm() : DEFAULT_DISTANCE_KM;
+        BigDecimal deliveryCost = courierQuoteService.deliveryCost(courier.getId(), distanceKm, request.getQuantity());
+
+        Order order = new Order();
+        order.attachCustomer(customer);
+        order.attachProduct(product);
+        order.attachCourier(courier);
+        order.setQuantity(request.getQuantity());
+        order.setAmount(product.getPrice().multiply(BigDecimal.valueOf(request.getQuantity()))
+                .add(deliveryCost));
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setCustomCourierName(request.getCustomCourierName());
+        order.setProductImagePath(request.getProductImagePath());
+        order.onCreate();
+        return order;
+    }
+
+    static RuntimeException outOfStock(Order order) {
+        return new RuntimeException("Error: Product " + order.getProduct().getName() + " is out of stock.");
+    }
+}
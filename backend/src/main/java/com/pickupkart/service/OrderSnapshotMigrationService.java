@@ -0,0 +1,186 @@
+
+package com.pickupkart.service;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.BulkWriteOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Rewrites orders written with @DBRef customer/product/courier into the embedded snapshot layout,
+// then backfills orderId/customerId on payments that only hold an order DBRef and a version on old orders.
+// Runs at startup when migration.order-snapshots.enabled=true; safe to re-run, as only documents
+// without the new fields are touched. Each batch costs one read per referenced collection plus one bulk write.
+@Service
+public class OrderSnapshotMigrationService implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(OrderSnapshotMigrationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${migration.order-snapshots.enabled:false}")
+    private boolean enabled;
+
+    @Value("${migration.order-snapshots.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            migrate(batchSize);
+            migratePayments(batchSize);
+            backfillOrderVersions();
+        }
+    }
+
+    public long migrate(int batchSize) {
+        long migrated = 0;
+        Object lastId = null;
+        while (true) {
+            Bson filter = Filters.exists("customerId", false);
+            if (lastId != null) {
+                filter = Filters.and(filter, Filters.gt("_id", lastId));
+            }
+            List<Document> batch = mongoTemplate.getCollection("orders").find(filter)
+                    .projection(Projections.include("customer", "product", "courier"))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(batchSize)
+                    .into(new ArrayList<>());
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).get("_id");
+
+            Map<Object, Document> customers = loadReferenced(batch, "customer", "users", "fullName");
+            Map<Object, Document> products = loadReferenced(batch, "product", "products", "name", "price");
+            Map<Object, Document> couriers = loadReferenced(batch, "courier", "couriers", "name", "pricePerKm");
+
+            List<WriteModel<Document>> updates = new ArrayList<>();
+            for (Document order : batch) {
+                List<Bson> sets = new ArrayList<>();
+                addSnapshot(sets, order, "customer", "customerId", customers, "fullName");
+                addSnapshot(sets, order, "product", "productId", products, "name", "price");
+                addSnapshot(sets, order, "courier", "courierId", couriers, "name", "pricePerKm");
+                if (!sets.isEmpty()) {
+                    updates.add(new UpdateOneModel<>(Filters.eq("_id", order.get("_id")), Updates.combine(sets)));
+                }
+            }
+            if (!updates.isEmpty()) {
+                migrated += mongoTemplate.getCollection("orders")
+                        .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                        .getModifiedCount();
+            }
+            logger.info("Order snapshot migration: {} orders rewritten so far", migrated);
+        }
+        return migrated;
+    }
+
+    public long migratePayments(int batchSize) {
+        long migrated = 0;
+        Object lastId = null;
+        while (true) {
+            Bson filter = Filters.exists("orderId", false);
+            if (lastId != null) {
+                filter = Filters.and(filter, Filters.gt("_id", lastId));
+            }
+            List<Document> batch = mongoTemplate.getCollection("payments").find(filter)
+                    .projection(Projections.include("order"))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(batchSize)
+                    .into(new ArrayList<>());
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).get("_id");
+
+            Map<Object, Document> orders = loadReferenced(batch, "order", "orders", "customerId");
+
+            List<WriteModel<Document>> updates = new ArrayList<>();
+            for (Document payment : batch) {
+                if (!(payment.get("order") instanceof DBRef dbRef)) {
+                    continue;
+                }
+                Document order = orders.get(dbRef.getId());
+                List<Bson> sets = new ArrayList<>();
+                sets.add(Updates.set("orderId", dbRef.getId() instanceof ObjectId objectId
+                        ? objectId.toHexString() : dbRef.getId().toString()));
+                if (order != null && order.get("customerId") != null) {
+                    sets.add(Updates.set("customerId", order.get("customerId")));
+                }
+                updates.add(new UpdateOneModel<>(Filters.eq("_id", payment.get("_id")), Updates.combine(sets)));
+            }
+            if (!updates.isEmpty()) {
+                migrated += mongoTemplate.getCollection("payments")
+                        .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                        .getModifiedCount();
+            }
+            logger.info("Payment reference migration: {} payments rewritten so far", migrated);
+        }
+        return migrated;
+    }
+
+    // Orders written before Order#version existed would be re-inserted by a versioned save
+    public long backfillOrderVersions() {
+        long updated = mongoTemplate.getCollection("orders")
+                .updateMany(Filters.exists("version", false), Updates.set("version", 0L))
+                .getModifiedCount();
+        logger.info("Order version backfill: {} orders updated", updated);
+        return updated;
+    }
+
+    private Map<Object, Document> loadReferenced(List<Document> batch, String field, String collection, String... fields) {
+        Set<Object> ids = new HashSet<>();
+        for (Document order : batch) {
+            Object reference = order.get(field);
+            if (reference instanceof DBRef dbRef) {
+                ids.add(dbRef.getId());
+            }
+        }
+        Map<Object, Document> documents = new HashMap<>();
+        if (!ids.isEmpty()) {
+            mongoTemplate.getCollection(collection).find(Filters.in("_id", ids))
+                    .projection(Projections.include(fields))
+                    .forEach(document -> documents.put(document.get("_id"), document));
+        }
+        return documents;
+    }
+
+    // Product price is stored as unitPrice in the snapshot; other fields keep their names
+    private void addSnapshot(List<Bson> sets, Document order, String field, String idField,
+                             Map<Object, Document> referenced, String... fields) {
+        if (!(order.get(field) instanceof DBRef dbRef)) {
+            return;
+        }
+        String id = dbRef.getId() instanceof ObjectId objectId ? objectId.toHexString() : dbRef.getId().toString();
+        Document source = referenced.get(dbRef.getId());
+        Document snapshot = new Document("_id", dbRef.getId());
+        if (source != null) {
+            for (String name : fields) {
+                snapshot.append("price".equals(name) ? "unitPrice" : name, source.get(name));
+            }
+        }
+        sets.add(Updates.set(idField, id));
+        sets.add(Updates.set(field, snapshot));
+    }
+}
@@ -0,0 +1,464 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.config.MongoTopology;
+import com.pickupkart.model.OutboxEvent;
+import com.pickupkart.payload.response.OrderTrackingEvent;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes order and payment events to Server-Sent Events subscribers: one stream per customer and a
+// filtered stream for admins. An idle subscriber is an async request plus a small object, holding no
+// thread; a few sender threads drain per-subscriber queues. Each write runs on a writer thread of its
+// own and the sender waits for it only until send-timeout-ms, so a client that stops reading holds one
+// writer, never a sender. Writers are capped at writer-threads; a subscriber whose write misses that
+// deadline, finds every writer taken, or whose queue fills up, is too slow to keep up and is
+// disconnected; it reconnects with Last-Event-ID and catches up from the outbox. Events reach the hub from a change
+// stream on order_events (every instance sees every event) or, on standalone servers, from the
+// dispatcher of this instance.
+@Service
+public class OrderTrackingHub {
+    private static final Logger logger = LoggerFactory.getLogger(OrderTrackingHub.class);
+
+    // Sent instead of a replay that would exceed replay-limit; the client re-fetches its orders
+    public static final String RESYNC_EVENT = "resync";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoTopology mongoTopology;
+
+    @Value("${orders.tracking.change-streams:true}")
+    private boolean changeStreamsEnabled;
+
+    @Value("${orders.tracking.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${orders.tracking.max-subscribers:50000}")
+    private int maxSubscribers;
+
+    @Value("${orders.tracking.max-per-customer:5}")
+    private int maxPerCustomer;
+
+    @Value("${orders.tracking.replay-limit:100}")
+    private int replayLimit;
+
+    @Value("${orders.tracking.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${orders.tracking.send-timeout-ms:5000}")
+    private long sendTimeoutMillis;
+
+    private final Map<String, Set<Subscriber>> byCustomer = new ConcurrentHashMap<>();
+
+    private final Set<Subscriber> admins = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final ExecutorService senders;
+
+    // Writes, which block while a client does not read; stalled subscribers are evicted, so each holds at
+    // most one writer until the container's write timeout fails it. No queue: a write that finds every
+    // writer busy is rejected and its subscriber disconnected
+    private final ThreadPoolExecutor writers;
+
+    private volatile boolean watching;
+
+    private MessageListenerContainer container;
+
+    public OrderTrackingHub(@Value("${orders.tracking.sender-threads:4}") int senderThreads,
+                            @Value("${orders.tracking.writer-threads:64}") int writerThreads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-tracking-");
+        threadFactory.setDaemon(true);
+        this.senders = Executors.newFixedThreadPool(senderThreads, threadFactory);
+        CustomizableThreadFactory writerThreadFactory = new CustomizableThreadFactory("order-tracking-write-");
+        writerThreadFactory.setDaemon(true);
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), writerThreadFactory);
+        this.writers.allowCoreThreadTimeOut(true);
+    }
+
+    // Events of one customer's orders
+    public SseEmitter subscribe(String customerId, String lastEventId) {
+        Subscriber subscriber = open(false, customerId, null);
+        boolean[] added = new boolean[1];
+        byCustomer.compute(customerId, (k, own) -> {
+            own = own != null ? own : ConcurrentHashMap.newKeySet();
+            if (own.size() < maxPerCustomer) {
+                added[0] = own.add(subscriber);
+            }
+            return own.isEmpty() ? null : own;
+        });
+        if (!added[0]) {
+            subscribers.decrementAndGet();
+            throw new RuntimeException("Error: Too many open order streams for this account.");
+        }
+        replay(subscriber, lastEventId, Criteria.where("customerId").is(customerId));
+        return subscriber.emitter;
+    }
+
+    // Events of all orders, optionally limited to one customer and to events carrying the given statuses
+    public SseEmitter subscribeAll(String customerId, Set<String> statuses, String lastEventId) {
+        Subscriber subscriber = open(true, customerId, statuses != null && !statuses.isEmpty() ? Set.copyOf(statuses) : null);
+        admins.add(subscriber);
+        Criteria criteria = new Criteria();
+        if (customerId != null) {
+            criteria.and("customerId").is(customerId);
+        }
+        if (subscriber.statuses != null) {
+            criteria.and("status").in(subscriber.statuses);
+        }
+        replay(subscriber, lastEventId, criteria);
+        return subscriber.emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public void publish(OutboxEvent event) {
+        if (event.getCustomerId() != null) {
+            Set<Subscriber> own = byCustomer.get(event.getCustomerId());
+            if (own != null) {
+                own.forEach(subscriber -> offer(subscriber, event));
+            }
+        }
+        for (Subscriber subscriber : admins) {
+            if (subscriber.accepts(event)) {
+                offer(subscriber, event);
+            }
+        }
+    }
+
+    // Standalone servers: events arrive from this instance's OrderEventDispatcher
+    @EventListener
+    public void onOutboxEvent(OutboxEvent event) {
+        if (!watching) {
+            publish(event);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWatching() {
+        if (!changeStreamsEnabled || !mongoTopology.supportsChangeStreams()) {
+            logger.info("Order tracking: change streams unavailable, pushing events dispatched by this instance");
+            return;
+        }
+        container = new DefaultMessageListenerContainer(mongoTemplate,
+                new SimpleAsyncTaskExecutor("order-tracking-watch-"), this::onWatchError);
+        ChangeStreamRequest<OutboxEvent> request = ChangeStreamRequest.builder(this::onChange)
+                .collection("order_events")
+                .filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").is("insert"))))
+                .build();
+        container.register(request, OutboxEvent.class);
+        container.start();
+        watching = true;
+    }
+
+    @Scheduled(fixedDelayString = "${orders.tracking.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        byCustomer.values().forEach(own -> own.forEach(this::requestHeartbeat));
+        admins.forEach(this::requestHeartbeat);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (container != null) {
+            container.stop();
+        }
+        byCustomer.values().forEach(own -> own.forEach(this::close));
+        admins.forEach(this::close);
+        senders.shutdown();
+        writers.shutdown();
+    }
+
+    private Subscriber open(boolean admin, String customerId, Set<String> statuses) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new RuntimeException("Error: Too many open order streams, try again later.");
+        }
+        Subscriber subscriber = new Subscriber(newEmitter(timeoutMillis), admin, customerId, statuses);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(error -> remove(subscriber));
+        return subscriber;
+    }
+
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    // Sends what was missed since Last-Event-ID ahead of live events. The subscriber is registered
+    // first, so nothing falls between the query and the live feed; live copies of replayed events are skipped.
+    // A client that missed more than replay-limit events gets one "resync" event instead, carrying the id of
+    // the newest event it missed: it re-fetches its orders and follows live events from there.
+    private void replay(Subscriber subscriber, String lastEventId, Criteria criteria) {
+        if (lastEventId == null || !ObjectId.isValid(lastEventId)) {
+            subscriber.ready = true;
+            schedule(subscriber);
+            return;
+        }
+        Query query = new Query(criteria.and("_id").gt(new ObjectId(lastEventId)))
+                .with(Sort.by("_id"))
+                .limit(replayLimit + 1);
+        List<OutboxEvent> missed = mongoTemplate.find(query, OutboxEvent.class);
+        if (missed.size() > replayLimit) {
+            Query newest = new Query(criteria).with(Sort.by(Sort.Direction.DESC, "_id")).limit(1);
+            newest.fields().include("_id");
+            OutboxEvent latest = mongoTemplate.findOne(newest, OutboxEvent.class);
+            subscriber.resyncThrough = latest != null ? latest.getId() : missed.get(missed.size() - 1).getId();
+            subscriber.resyncDue = true;
+            subscriber.ready = true;
+            schedule(subscriber);
+            return;
+        }
+        Set<String> replayed = new HashSet<>();
+        for (OutboxEvent event : missed) {
+            replayed.add(event.getId());
+            subscriber.replay.add(event);
+        }
+        subscriber.replayed = replayed;
+        subscriber.ready = true;
+        schedule(subscriber);
+    }
+
+    private void offer(Subscriber subscriber, OutboxEvent event) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (subscriber.queued.incrementAndGet() > bufferSize) {
+            logger.debug("Order tracking: disconnecting a subscriber that fell {} events behind", bufferSize);
+            close(subscriber);
+            return;
+        }
+        subscriber.queue.add(event);
+        schedule(subscriber);
+    }
+
+    private void requestHeartbeat(Subscriber subscriber) {
+        subscriber.heartbeatDue = true;
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.ready && !subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    // Runs on a sender thread; at most one drain per subscriber at a time
+    private void drain(Subscriber subscriber) {
+        try {
+            for (int sent = 0; sent < bufferSize && !subscriber.closed; sent++) {
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    if (!send(subscriber, SseEmitter.event().comment("heartbeat"))) {
+                        return;
+                    }
+                }
+                if (subscriber.resyncDue) {
+                    subscriber.resyncDue = false;
+                    if (!send(subscriber, SseEmitter.event()
+                            .id(subscriber.resyncThrough)
+                            .name(RESYNC_EVENT)
+                            .data(Map.of("reason", "replay-limit"), MediaType.APPLICATION_JSON))) {
+                        return;
+                    }
+                }
+                OutboxEvent event = subscriber.replay.poll();
+                if (event == null) {
+                    event = subscriber.queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    subscriber.queued.decrementAndGet();
+                    if (subscriber.replayed.contains(event.getId()) || subscriber.coveredByResync(event)) {
+                        continue;
+                    }
+                }
+                if (!send(subscriber, SseEmitter.event()
+                        .id(event.getId())
+                        .name(event.getType().name())
+                        .data(OrderTrackingEvent.of(event), MediaType.APPLICATION_JSON))) {
+                    return;
+                }
+            }
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // Something arrived after the last poll, or the run stopped at its limit
+        if (!subscriber.queue.isEmpty() || !subscriber.replay.isEmpty() || subscriber.heartbeatDue) {
+            schedule(subscriber);
+        }
+    }
+
+    // Writes on a writer thread and waits up to send-timeout-ms; false once the subscriber is closed
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        Future<?> write;
+        try {
+            write = writers.submit(() -> {
+                subscriber.writing = true;
+                try {
+                    if (!subscriber.closed) {
+                        subscriber.emitter.send(event);
+                    }
+                } finally {
+                    subscriber.writing = false;
+                    // Closed while this write was blocked: complete now that the emitter's lock is free
+                    if (subscriber.closed) {
+                        complete(subscriber);
+                    }
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Order tracking: disconnecting a subscriber, all {} writers are busy", writers.getMaximumPoolSize());
+            close(subscriber);
+            return false;
+        }
+        try {
+            write.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // The write stays blocked on its writer until the container gives up on the connection
+            logger.debug("Order tracking: disconnecting a subscriber whose send took over {} ms", sendTimeoutMillis);
+        } catch (ExecutionException e) {
+            // The client went away; the container reports completion and remove() runs
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close(subscriber);
+        return false;
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        remove(subscriber);
+        // Completing takes the emitter's lock, which a blocked send holds; that write completes it instead
+        if (!subscriber.writing) {
+            complete(subscriber);
+        }
+    }
+
+    private void complete(Subscriber subscriber) {
+        if (subscriber.completed.compareAndSet(false, true)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        boolean[] removed = new boolean[1];
+        if (subscriber.admin) {
+            removed[0] = admins.remove(subscriber);
+        } else {
+            byCustomer.computeIfPresent(subscriber.customerId, (k, own) -> {
+                removed[0] = own.remove(subscriber);
+                return own.isEmpty() ? null : own;
+            });
+        }
+        if (removed[0]) {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    private void onChange(Message<?, OutboxEvent> message) {
+        OutboxEvent event = message.getBody();
+        if (event != null) {
+            publish(event);
+        }
+    }
+
+    private void onWatchError(Throwable error) {
+        logger.warn("Order tracking: change stream failed, pushing events dispatched by this instance", error);
+        watching = false;
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final boolean admin;
+        final String customerId;
+        final Set<String> statuses;
+        final Queue<OutboxEvent> queue = new ConcurrentLinkedQueue<>();
+        final Queue<OutboxEvent> replay = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile Set<String> replayed = Set.of();
+        // Newest event the client re-fetches after a resync; older live events are skipped
+        volatile String resyncThrough;
+        volatile boolean resyncDue;
+        // Live events wait until the replay has been queued
+        volatile boolean ready;
+        volatile boolean heartbeatDue;
+        volatile boolean closed;
+        // A write is in progress on a writer thread, holding the emitter's lock
+        volatile boolean writing;
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, boolean admin, String customerId, Set<String> statuses) {
+            this.emitter = emitter;
+            this.admin = admin;
+            this.customerId = customerId;
+            this.statuses = statuses;
+        }
+
+        // ObjectId hex strings sort like the ids themselves
+        boolean coveredByResync(OutboxEvent event) {
+            String through = resyncThrough;
+            return through != null && event.getId().compareTo(through) <= 0;
+        }
+
+        boolean accepts(OutboxEvent event) {
+            return (customerId == null || customerId.equals(event.getCustomerId()))
+                    && (statuses == null || statuses.contains(event.getStatus()));
+        }
+    }
+}
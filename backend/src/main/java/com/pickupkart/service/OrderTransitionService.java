@@ -0,0 +1,180 @@
+
+package com.pickupkart.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.pickupkart.model.Order;
+import com.pickupkart.payload.response.BulkOrderTransitionResponse;
+import com.pickupkart.payload.response.OrderTransitionResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moves orders between statuses along Order.OrderStatus#canTransitionTo. Every move is a conditional
+// update on the expected status, so concurrent admins or the reservation sweeper cannot both win;
+// bulk moves go to the server as one unordered bulkWrite instead of a load and save per order.
+// The move, its stock commit or release and its outbox event share one TransactionRunner transaction.
+@Service
+public class OrderTransitionService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Value("${orders.transitions.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    public OrderTransitionResult transition(String orderId, Order.OrderStatus from, Order.OrderStatus to,
+                                            Long expectedVersion) {
+        if (to == null) {
+            throw new RuntimeException("Error: Target status is required.");
+        }
+        if (from == null) {
+            Order current = findState(orderId);
+            if (current == null) {
+                return new OrderTransitionResult(orderId, OrderTransitionResult.Outcome.NOT_FOUND, null, null);
+            }
+            from = current.getStatus();
+        }
+        if (from == null || !from.canTransitionTo(to)) {
+            return new OrderTransitionResult(orderId, OrderTransitionResult.Outcome.ILLEGAL, from, expectedVersion);
+        }
+
+        Criteria criteria = Criteria.where("_id").is(orderId).and("status").is(from);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        Order updated = transactionRunner.execute(() -> {
+            Order moved = mongoTemplate.findAndModify(new Query(criteria), transitionUpdate(to),
+                    FindAndModifyOptions.options().returnNew(true), Order.class);
+            if (moved != null) {
+                afterTransition(List.of(orderId), to);
+                orderEventOutbox.orderStatusChanged(moved);
+            }
+            return moved;
+        });
+        if (updated == null) {
+            Order current = findState(orderId);
+            if (current == null) {
+                return new OrderTransitionResult(orderId, OrderTransitionResult.Outcome.NOT_FOUND, null, null);
+            }
+            OrderTransitionResult.Outcome outcome = current.getStatus() == to
+                    ? OrderTransitionResult.Outcome.ALREADY_IN_STATE : OrderTransitionResult.Outcome.CONFLICT;
+            return new OrderTransitionResult(orderId, outcome, current.getStatus(), current.getVersion());
+        }
+
+        return new OrderTransitionResult(orderId, OrderTransitionResult.Outcome.APPLIED, to, updated.getVersion());
+    }
+
+    public BulkOrderTransitionResponse transitionAll(Collection<String> orderIds, Order.OrderStatus from,
+                                                     Order.OrderStatus to) {
+        if (from == null || to == null) {
+            throw new RuntimeException("Error: Source and target status are required.");
+        }
+        if (!from.canTransitionTo(to)) {
+            throw new RuntimeException("Error: Orders cannot move from " + from + " to " + to + ".");
+        }
+        Set<String> ids = orderIds != null ? new LinkedHashSet<>(orderIds) : Set.of();
+        if (ids.isEmpty()) {
+            return new BulkOrderTransitionResponse(0, 0, List.of());
+        }
+        if (ids.size() > maxBatchSize) {
+            throw new RuntimeException("Error: At most " + maxBatchSize + " orders can be updated at once.");
+        }
+
+        return transactionRunner.execute(() -> {
+            // Each update stamps this call's id, so the orders it moved are known from the write itself
+            String transitionId = new ObjectId().toHexString();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+            Update update = transitionUpdate(to).set("transitionId", transitionId);
+            for (String id : ids) {
+                bulk.updateOne(new Query(Criteria.where("_id").is(id).and("status").is(from)), update);
+            }
+            BulkWriteResult result = bulk.execute();
+
+            // Every order matched: nothing to look up. Otherwise one $in read tells this call's writes from the rest;
+            // an order already in the target status was moved before the request or by someone else
+            List<OrderTransitionResult> results = new ArrayList<>(ids.size());
+            List<String> applied = new ArrayList<>(ids.size());
+            if (result.getModifiedCount() == ids.size()) {
+                applied.addAll(ids);
+                ids.forEach(id -> results.add(new OrderTransitionResult(id, OrderTransitionResult.Outcome.APPLIED, to, null)));
+            } else {
+                Query query = new Query(Criteria.where("_id").in(ids));
+                query.fields().include("status", "version", "transitionId");
+                Map<String, Order> states = new HashMap<>();
+                mongoTemplate.find(query, Order.class).forEach(order -> states.put(order.getId(), order));
+                for (String id : ids) {
+                    Order state = states.get(id);
+                    if (state == null) {
+                        results.add(new OrderTransitionResult(id, OrderTransitionResult.Outcome.NOT_FOUND, null, null));
+                    } else if (transitionId.equals(state.getTransitionId())) {
+                        applied.add(id);
+                        results.add(new OrderTransitionResult(id, OrderTransitionResult.Outcome.APPLIED, to, state.getVersion()));
+                    } else if (state.getStatus() == to) {
+                        results.add(new OrderTransitionResult(id, OrderTransitionResult.Outcome.ALREADY_IN_STATE, to, state.getVersion()));
+                    } else {
+                        results.add(new OrderTransitionResult(id, OrderTransitionResult.Outcome.CONFLICT, state.getStatus(), state.getVersion()));
+                    }
+                }
+            }
+
+            if (!applied.isEmpty()) {
+                afterTransition(applied, to);
+                orderEventOutbox.orderStatusChanged(applied, to);
+            }
+            return new BulkOrderTransitionResponse(applied.size(), ids.size() - applied.size(), results);
+        });
+    }
+
+    private Update transitionUpdate(Order.OrderStatus to) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update().set("status", to).set("updatedAt", now).inc("version", 1);
+        if (to == Order.OrderStatus.DELIVERED) {
+            update.set("deliveryDate", now);
+        }
+        return update;
+    }
+
+    // Confirmed orders keep their stock past the reservation TTL; cancelled ones give it back
+    private void afterTransition(List<String> orderIds, Order.OrderStatus to) {
+        if (to == Order.OrderStatus.CONFIRMED) {
+            inventoryService.commitAll(orderIds);
+        } else if (to == Order.OrderStatus.CANCELLED) {
+            inventoryService.releaseAll(orderIds);
+        }
+        // Conditional updates bypass the mapping events that ReceiptCacheInvalidator listens to
+        transactionRunner.afterCommit(() -> receiptService.evictOrders(orderIds));
+    }
+
+    private Order findState(String orderId) {
+        Query query = new Query(Criteria.where("_id").is(orderId));
+        query.fields().include("status", "version");
+        return mongoTemplate.findOne(query, Order.class);
+    }
+}
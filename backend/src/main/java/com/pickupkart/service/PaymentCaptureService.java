@@ -0,0 +1,192 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.payload.response.OrderTransitionResult;
+import com.pickupkart.payload.response.PaymentCaptureResponse;
+import com.pickupkart.repository.OrderRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+// Payments are created PENDING with a generated transaction id and settled exactly once by the gateway
+// callback: the settle is a conditional update on status PENDING, and transactionId is unique-indexed.
+// Repeated callbacks for a recently settled transaction are answered by RecentTransactionGuard.
+// Each write and its outbox event (for a capture, also the order's confirmation) share one
+// TransactionRunner transaction.
+@Service
+public class PaymentCaptureService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCaptureService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Autowired
+    private RecentTransactionGuard recentTransactionGuard;
+
+    @Autowired
+    private OrderTransitionService orderTransitionService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Value("${payments.gateway.secret:}")
+    private String gatewaySecret;
+
+    // Starts (or resumes) payment of a PENDING order; the returned transaction id is handed to the gateway
+    public Payment initiate(String customerId, boolean isAdmin, String orderId, Payment.PaymentMode mode) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Error: Order is not found."));
+        if (!isAdmin && !customerId.equals(order.getCustomerId())) {
+            throw new RuntimeException("Error: You are not allowed to pay for this order.");
+        }
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            throw new RuntimeException("Error: Order is not awaiting payment.");
+        }
+
+        // One atomic upsert instead of a find then an insert, so concurrent calls share one PENDING payment;
+        // the partial unique index IndexManager.PAYMENT_PENDING_ORDER_INDEX backs it up
+        Query pending = new Query(Criteria.where("orderId").is(orderId).and("status").is(Payment.PaymentStatus.PENDING));
+        Payment candidate = pendingPayment(order, mode);
+        Payment payment;
+        try {
+            payment = transactionRunner.execute(() -> {
+                Payment upserted = mongoTemplate.findAndModify(pending, insertOnly(candidate),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Payment.class);
+                if (candidate.getTransactionId().equals(upserted.getTransactionId())) {
+                    orderEventOutbox.paymentCreated(upserted);
+                }
+                return upserted;
+            });
+        } catch (DuplicateKeyException e) {
+            // Lost the insert race to a concurrent call; its payment is the one to use
+            payment = mongoTemplate.findOne(pending, Payment.class);
+            if (payment == null) {
+                throw e;
+            }
+        }
+        return payment;
+    }
+
+    // $setOnInsert of every mapped field, so an existing PENDING payment is returned unchanged
+    private Update insertOnly(Payment payment) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(payment, document);
+        Update update = new Update();
+        document.forEach(update::setOnInsert);
+        return update;
+    }
+
+    // Unsaved PENDING payment for the full order amount
+    public Payment pendingPayment(Order order, Payment.PaymentMode mode) {
+        Payment payment = new Payment();
+        payment.attachOrder(order);
+        payment.setPaymentMode(mode != null ? mode : Payment.PaymentMode.UPI);
+        payment.setPaymentAmount(order.getAmount());
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        payment.setTransactionId(transactionIdGenerator.next());
+        payment.onCreate();
+        return payment;
+    }
+
+    public PaymentCaptureResponse capture(String transactionId, Payment.PaymentStatus outcome) {
+        if (transactionId == null || (outcome != Payment.PaymentStatus.COMPLETED && outcome != Payment.PaymentStatus.FAILED)) {
+            throw new RuntimeException("Error: A transaction id and a COMPLETED or FAILED status are required.");
+        }
+        Payment.PaymentStatus recent = recentTransactionGuard.recentStatus(transactionId);
+        if (recent != null) {
+            return new PaymentCaptureResponse(transactionId, recent, true);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update().set("status", outcome).set("updatedAt", now);
+        if (outcome == Payment.PaymentStatus.COMPLETED) {
+            update.set("paymentDate", now);
+        }
+        Query pending = new Query(Criteria.where("transactionId").is(transactionId).and("status").is(Payment.PaymentStatus.PENDING));
+        Payment settled = transactionRunner.execute(() -> {
+            Payment payment = mongoTemplate.findAndModify(pending, update,
+                    FindAndModifyOptions.options().returnNew(true), Payment.class);
+            if (payment != null) {
+                orderEventOutbox.paymentStatusChanged(payment);
+                if (outcome == Payment.PaymentStatus.COMPLETED) {
+                    confirmOrder(payment);
+                }
+            }
+            return payment;
+        });
+
+        if (settled == null) {
+            Query query = new Query(Criteria.where("transactionId").is(transactionId));
+            query.fields().include("status");
+            Payment current = mongoTemplate.findOne(query, Payment.class);
+            if (current == null) {
+                throw new RuntimeException("Error: Transaction is not found.");
+            }
+            if (current.getStatus() != Payment.PaymentStatus.PENDING) {
+                recentTransactionGuard.remember(transactionId, current.getStatus());
+            }
+            return new PaymentCaptureResponse(transactionId, current.getStatus(), true);
+        }
+
+        recentTransactionGuard.remember(transactionId, outcome);
+        receiptService.evictPayment(settled.getId());
+        return new PaymentCaptureResponse(transactionId, outcome, false);
+    }
+
+    private void confirmOrder(Payment payment) {
+        OrderTransitionResult confirmed = orderTransitionService.transition(
+                payment.getOrderId(), Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED, null);
+        if (confirmed.getOutcome() != OrderTransitionResult.Outcome.APPLIED
+                && confirmed.getStatus() != Order.OrderStatus.CONFIRMED) {
+            logger.warn("Payment {} captured for order {} in status {}; needs a refund or manual review",
+                    payment.getTransactionId(), payment.getOrderId(), confirmed.getStatus());
+        }
+    }
+
+    // Gateway callbacks are signed with HMAC-SHA256 over "<transactionId>:<status>", hex encoded
+    public boolean verifySignature(String transactionId, Payment.PaymentStatus status, String signature) {
+        if (gatewaySecret.isEmpty() || signature == null || transactionId == null || status == null) {
+            return false;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(gatewaySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = mac.doFinal((transactionId + ":" + status).getBytes(StandardCharsets.UTF_8));
+            byte[] actual = HexFormat.of().parseHex(signature.trim().toLowerCase());
+            return MessageDigest.isEqual(expected, actual);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.payload.response.CursorPage;
+import com.pickupkart.payload.response.PaymentHistoryEntry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Customer payment history as a single aggregation per page: the customer's orders are matched and
+// keyset-paged on the customer_orderDate_id index, payments are joined with $lookup on the indexed
+// payments.orderId, and only the fields the history screen renders are projected.
+@Service
+public class PaymentHistoryService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public CursorPage<PaymentHistoryEntry> findPage(String customerId, KeysetCursor after, int limit) {
+        Criteria match = Criteria.where("customerId").is(customerId);
+        if (after != null) {
+            match = new Criteria().andOperator(match, new Criteria().orOperator(
+                    Criteria.where("orderDate").lt(after.date()),
+                    new Criteria().andOperator(
+                            Criteria.where("orderDate").is(after.date()),
+                            Criteria.where("_id").lt(after.id()))));
+        }
+
+        // payments.orderId holds the hex string of the order id
+        AggregationOperation orderKey = context -> new Document("$addFields",
+                new Document("orderKey", new Document("$toString", "$_id")));
+        AggregationOperation project = context -> new Document("$project", new Document()
+                .append("orderDate", 1)
+                .append("productName", "$product.name")
+                .append("payments._id", 1)
+                .append("payments.paymentMode", 1)
+                .append("payments.paymentAmount", 1)
+                .append("payments.status", 1)
+                .append("payments.paymentDate", 1)
+                .append("payments.transactionId", 1));
+
+        TypedAggregation<Order> aggregation = Aggregation.newAggregation(Order.class,
+                Aggregation.match(match),
+                Aggregation.sort(Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("_id"))),
+                Aggregation.limit(limit + 1L),
+                orderKey,
+                Aggregation.lookup("payments", "orderKey", "orderId", "payments"),
+                project);
+
+        List<OrderPayments> orders = new ArrayList<>(limit + 1);
+        try (Stream<OrderPayments> stream = mongoTemplate.aggregateStream(aggregation, "orders", OrderPayments.class)) {
+            stream.forEach(orders::add);
+        }
+
+        boolean hasMore = orders.size() > limit;
+        List<OrderPayments> page = hasMore ? orders.subList(0, limit) : orders;
+
+        List<PaymentHistoryEntry> entries = new ArrayList<>();
+        for (OrderPayments order : page) {
+            for (PaymentLine payment : order.payments()) {
+                entries.add(new PaymentHistoryEntry(payment.id(), order.id(), order.productName(),
+                        payment.paymentMode(), payment.paymentAmount(), payment.status(),
+                        payment.paymentDate(), payment.transactionId()));
+            }
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderPayments last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.orderDate(), last.id()).encode();
+        }
+        return new CursorPage<>(entries, nextCursor, hasMore);
+    }
+
+    record OrderPayments(String id, LocalDateTime orderDate, String productName, List<PaymentLine> payments) {
+        OrderPayments {
+            payments = payments != null ? payments : List.of();
+        }
+    }
+
+    record PaymentLine(String id, Payment.PaymentMode paymentMode, BigDecimal paymentAmount,
+                       Payment.PaymentStatus status, LocalDateTime paymentDate, String transactionId) {
+    }
+}
@@ -0,0 +1,341 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Product;
+import com.pickupkart.payload.response.ProductSearchPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process inverted index over product name and description. Query words match indexed terms
+// exactly, by prefix (a range of the sorted term dictionary) or anywhere inside a term (through a
+// trigram -> term map), so a search costs a few dictionary lookups rather than a scan of every product.
+// Every query word must match; hits are ranked by match kind and field weight.
+@Service
+public class ProductSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int EXACT_BOOST = 4;
+    private static final int PREFIX_BOOST = 2;
+    private static final int INFIX_BOOST = 1;
+
+    private static final Comparator<Hit> RANK = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(hit -> nullToEmpty(hit.product.getName()), String.CASE_INSENSITIVE_ORDER);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (doc -> weight)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+    private final List<Doc> docs = new ArrayList<>();
+
+    private final Map<String, Integer> docByProductId = new HashMap<>();
+
+    private final List<Integer> freeDocs = new ArrayList<>();
+
+    private final int maxExpansions;
+
+    public ProductSearchIndex(@Value("${search.products.max-expansions:256}") int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    public ProductSearchPage search(String query, int page, int size) {
+        int[] total = new int[1];
+        List<Hit> hits = rankedHits(query, (long) page * size + size, total);
+        int from = (int) Math.min((long) page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<Product> items = new ArrayList<>(to - from);
+        for (Hit hit : hits.subList(from, to)) {
+            items.add(hit.product);
+        }
+        return new ProductSearchPage(items, total[0], page, size);
+    }
+
+    // Distinct product names for the search box, best match first
+    public List<String> suggest(String query, int limit) {
+        Set<String> names = new LinkedHashSet<>();
+        // Over-fetch a little, as several products can share a name
+        for (Hit hit : rankedHits(query, limit * 4L, new int[1])) {
+            names.add(hit.product.getName());
+            if (names.size() == limit) {
+                break;
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Brings the index in line with a full product list, re-indexing only products whose text changed
+    public void sync(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            Set<String> seen = new HashSet<>(products.size() * 2);
+            for (Product product : products) {
+                seen.add(product.getId());
+                Integer docId = docByProductId.get(product.getId());
+                Doc doc = docId != null ? docs.get(docId) : null;
+                if (doc != null && Objects.equals(doc.product.getName(), product.getName())
+                        && Objects.equals(doc.product.getDescription(), product.getDescription())) {
+                    doc.product = product;
+                } else {
+                    removeDoc(product.getId());
+                    add(product);
+                }
+            }
+            for (String productId : new ArrayList<>(docByProductId.keySet())) {
+                if (!seen.contains(productId)) {
+                    removeDoc(productId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The best `limit` hits in rank order; total[0] receives the number of matching products
+    private List<Hit> rankedHits(String query, long limit, int[] total) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, int[]> matches = null;
+            for (String word : words) {
+                Map<Integer, Integer> scores = scoreWord(word);
+                if (matches == null) {
+                    matches = new HashMap<>(scores.size() * 2);
+                    for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                        matches.put(entry.getKey(), new int[]{entry.getValue()});
+                    }
+                } else {
+                    // Every word has to match: keep only documents that matched all previous words too
+                    Map<Integer, int[]> previous = matches;
+                    matches = new HashMap<>(Math.min(previous.size(), scores.size()) * 2);
+                    for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                        int[] score = previous.get(entry.getKey());
+                        if (score != null) {
+                            score[0] += entry.getValue();
+                            matches.put(entry.getKey(), score);
+                        }
+                    }
+                }
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            total[0] = matches.size();
+            if (limit >= matches.size()) {
+                List<Hit> hits = new ArrayList<>(matches.size());
+                matches.forEach((docId, score) -> hits.add(new Hit(docs.get(docId).product, score[0])));
+                hits.sort(RANK);
+                return hits;
+            }
+
+            // Broad queries: keep only the top hits in a bounded heap instead of sorting every match
+            int keep = (int) limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(keep + 1, RANK.reversed());
+            matches.forEach((docId, score) -> {
+                if (top.size() < keep || score[0] >= top.peek().score) {
+                    top.add(new Hit(docs.get(docId).product, score[0]));
+                    if (top.size() > keep) {
+                        top.poll();
+                    }
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANK);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score per document for one query word: exact term, then prefix, then infix matches
+    private Map<Integer, Integer> scoreWord(String word) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        int expansions = 0;
+        for (Map.Entry<String, Map<Integer, Integer>> entry : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            int boost = entry.getKey().equals(word) ? EXACT_BOOST : PREFIX_BOOST;
+            addScores(scores, entry.getValue(), boost);
+            if (++expansions >= maxExpansions) {
+                return scores;
+            }
+        }
+        if (word.length() >= 3) {
+            for (String term : infixTerms(word)) {
+                if (!term.startsWith(word)) {
+                    addScores(scores, postings.get(term), INFIX_BOOST);
+                    if (++expansions >= maxExpansions) {
+                        break;
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void addScores(Map<Integer, Integer> scores, Map<Integer, Integer> termPostings, int boost) {
+        termPostings.forEach((docId, weight) -> scores.merge(docId, weight * boost, Math::max));
+    }
+
+    // Terms containing the word: intersect the term sets of its trigrams, then confirm
+    private List<String> infixTerms(String word) {
+        Set<String> candidates = null;
+        for (String trigram : trigrams(word)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms == null) {
+                return List.of();
+            }
+            if (candidates == null || terms.size() < candidates.size()) {
+                candidates = terms;
+            }
+        }
+        List<String> found = new ArrayList<>();
+        for (String term : candidates) {
+            if (term.contains(word)) {
+                found.add(term);
+            }
+        }
+        return found;
+    }
+
+    private void add(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(product.getDescription())) {
+            terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+
+        int docId;
+        Doc doc = new Doc(product, terms.keySet());
+        if (!freeDocs.isEmpty()) {
+            docId = freeDocs.remove(freeDocs.size() - 1);
+            docs.set(docId, doc);
+        } else {
+            docId = docs.size();
+            docs.add(doc);
+        }
+        docByProductId.put(product.getId(), docId);
+
+        terms.forEach((term, weight) -> {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            if (termPostings == null) {
+                termPostings = new HashMap<>(4);
+                postings.put(term, termPostings);
+                for (String trigram : trigrams(term)) {
+                    termsByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(term);
+                }
+            }
+            termPostings.put(docId, weight);
+        });
+    }
+
+    private void removeDoc(String productId) {
+        Integer docId = docByProductId.remove(productId);
+        if (docId == null) {
+            return;
+        }
+        for (String term : docs.get(docId).terms) {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            termPostings.remove(docId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                for (String trigram : trigrams(term)) {
+                    Set<String> terms = termsByTrigram.get(trigram);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        termsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+        docs.set(docId, null);
+        // The slot is reused right away when a product is re-indexed in place
+        freeDocs.add(docId);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                // Locale.ROOT: under e.g. a Turkish default locale "I" would lower-case to a dotless i
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> trigrams(String term) {
+        List<String> trigrams = new ArrayList<>(Math.max(0, term.length() - 2));
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            trigrams.add(term.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static final class Doc {
+        Product product;
+        final Set<String> terms;
+
+        Doc(Product product, Set<String> terms) {
+            this.product = product;
+            this.terms = terms;
+        }
+    }
+
+    private record Hit(Product product, int score) {
+    }
+}
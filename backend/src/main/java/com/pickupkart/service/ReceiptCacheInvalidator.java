@@ -0,0 +1,39 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Drops cached receipts when a payment (e.g. a refund) or its order is written through Spring Data
+@Component
+public class ReceiptCacheInvalidator extends AbstractMongoEventListener<Object> {
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof Payment payment) {
+            receiptService.evictPayment(payment.getId());
+        } else if (source instanceof Order order) {
+            receiptService.evictOrder(order.getId());
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Document source = event.getSource();
+        Object id = source != null ? source.get("_id") : null;
+        if (Payment.class.equals(event.getType()) && id != null) {
+            receiptService.evictPayment(id.toString());
+        } else if (Order.class.equals(event.getType()) && id != null) {
+            receiptService.evictOrder(id.toString());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+
+package com.pickupkart.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.repository.OrderRepository;
+import com.pickupkart.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.util.HtmlUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+// Renders downloadable HTML receipts. Rendered bytes are cached per payment, bounded by total size,
+// and dropped whenever the payment or its order is saved (see ReceiptCacheInvalidator).
+// Only completed payments are cached: their receipts no longer change.
+@Service
+public class ReceiptService {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy, HH:mm");
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final Cache<String, Receipt> cache;
+
+    public ReceiptService(@Value("${receipts.cache.max-bytes:67108864}") long maxBytes, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String paymentId, Receipt receipt) -> receipt.content().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "receipts");
+    }
+
+    // Customer the payment belongs to, from the cached receipt or two small projections; empty when the
+    // payment or its order does not exist. Lets callers check access before anything is loaded or rendered.
+    public Optional<String> findCustomerId(String paymentId) {
+        // asMap() reads leave the cache's hit and miss counts to getReceipt
+        Receipt cached = cache.asMap().get(paymentId);
+        if (cached != null) {
+            return Optional.ofNullable(cached.customerId());
+        }
+
+        Optional<Payment> payment = paymentRepository.findOwnerById(paymentId);
+        if (payment.isEmpty() || payment.get().getOrderId() == null) {
+            return Optional.empty();
+        }
+        if (payment.get().getCustomerId() != null) {
+            return Optional.of(payment.get().getCustomerId());
+        }
+        // Payments saved before customerId was denormalized
+        return orderRepository.findOwnerById(payment.get().getOrderId()).map(Order::getCustomerId);
+    }
+
+    public Optional<Receipt> getReceipt(String paymentId) {
+        Receipt cached = cache.getIfPresent(paymentId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<Payment> payment = paymentRepository.findById(paymentId);
+        if (payment.isEmpty()) {
+            return Optional.empty();
+        }
+        String orderId = payment.get().getOrderId();
+        if (orderId == null && payment.get().getOrder() != null) {
+            orderId = payment.get().getOrder().getId();
+        }
+        Order order = orderId != null ? orderRepository.findOrderWithPaymentAndProductDetails(orderId) : null;
+        if (order == null) {
+            return Optional.empty();
+        }
+
+        Receipt receipt = render(payment.get(), order);
+        if (payment.get().getStatus() == Payment.PaymentStatus.COMPLETED) {
+            cache.put(paymentId, receipt);
+        }
+        return Optional.of(receipt);
+    }
+
+    public void evictPayment(String paymentId) {
+        if (paymentId != null) {
+            cache.invalidate(paymentId);
+        }
+    }
+
+    public void evictOrder(String orderId) {
+        if (orderId != null) {
+            cache.asMap().values().removeIf(receipt -> orderId.equals(receipt.orderId()));
+        }
+    }
+
+    // One pass over the cache for a whole batch of orders
+    public void evictOrders(Collection<String> orderIds) {
+        if (!orderIds.isEmpty()) {
+            Set<String> ids = orderIds instanceof Set<String> set ? set : new HashSet<>(orderIds);
+            cache.asMap().values().removeIf(receipt -> ids.contains(receipt.orderId()));
+        }
+    }
+
+    private Receipt render(Payment payment, Order order) {
+        String productName = order.getProduct() != null ? order.getProduct().getName() : "-";
+        BigDecimal unitPrice = order.getProduct() != null ? order.getProduct().getUnitPrice() : null;
+        String courierName = order.getCustomCourierName() != null ? order.getCustomCourierName()
+                : order.getCourier() != null ? order.getCourier().getName() : "-";
+        String customerName = order.getCustomer() != null ? order.getCustomer().getFullName() : "-";
+
+        StringBuilder html = new StringBuilder(2048);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>PickupKart Receipt</title>")
+                .append("<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse;width:100%}")
+                .append("td,th{border:1px solid #ddd;padding:6px;text-align:left}</style></head><body>")
+                .append("<h1>PickupKart Express Delivery</h1><h2>Payment Receipt</h2>")
+                .append("<table>");
+        row(html, "Transaction ID", payment.getTransactionId());
+        row(html, "Payment Date", format(payment.getPaymentDate()));
+        row(html, "Payment Mode", payment.getPaymentMode());
+        row(html, "Payment Status", payment.getStatus());
+        row(html, "Customer", customerName);
+        row(html, "Order ID", order.getId());
+        row(html, "Order Date", format(order.getOrderDate()));
+        row(html, "Order Status", order.getStatus());
+        row(html, "Product", productName);
+        row(html, "Unit Price", amount(unitPrice));
+        row(html, "Quantity", order.getQuantity());
+        row(html, "Courier", courierName);
+        row(html, "Amount Paid", amount(payment.getPaymentAmount()));
+        html.append("</table><p>Thank you for shipping with PickupKart.</p></body></html>");
+
+        byte[] content = html.toString().getBytes(StandardCharsets.UTF_8);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+        String fileName = "receipt-" + (payment.getTransactionId() != null ? payment.getTransactionId() : payment.getId()) + ".html";
+        return new Receipt(payment.getId(), order.getId(), order.getCustomerId(), content, etag, fileName);
+    }
+
+    private static void row(StringBuilder html, String label, Object value) {
+        html.append("<tr><th>").append(label).append("</th><td>")
+                .append(HtmlUtils.htmlEscape(value != null ? value.toString() : "-"))
+                .append("</td></tr>");
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? DATE_FORMAT.format(dateTime) : null;
+    }
+
+    private static String amount(BigDecimal value) {
+        return value != null ? "₹" + value.setScale(2, RoundingMode.HALF_UP).toPlainString() : null;
+    }
+
+    public record Receipt(String paymentId, String orderId, String customerId, byte[] content, String etag,
+                          String fileName) {
+    }
+}
@@ -0,0 +1,115 @@
+
+package com.pickupkart.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pickupkart.model.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Remembers recently settled transactions so repeated gateway callbacks are answered without MongoDB.
+// A Bloom filter tells a first callback (the common case) apart without touching the LRU; a hit in the
+// LRU returns the settled status. Both are advisory: the conditional update in PaymentCaptureService
+// stays the source of truth, so a false positive or an evicted entry only costs a database round trip.
+@Component
+public class RecentTransactionGuard {
+    private final Cache<String, Payment.PaymentStatus> settled;
+
+    private final long bloomCapacity;
+
+    private final int bloomBits;
+
+    private final int bloomHashes;
+
+    // Swapped for an empty filter once it has taken bloomCapacity ids, bounding its false positive rate
+    private final AtomicReference<Bloom> bloom = new AtomicReference<>();
+
+    public RecentTransactionGuard(@Value("${payments.guard.lru-size:100000}") long lruSize,
+                                  @Value("${payments.guard.bloom-capacity:1000000}") long bloomCapacity,
+                                  @Value("${payments.guard.bloom-false-positive-rate:0.01}") double falsePositiveRate) {
+        this.settled = Caffeine.newBuilder().maximumSize(lruSize).build();
+        this.bloomCapacity = bloomCapacity;
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        this.bloomBits = (int) Math.min(Integer.MAX_VALUE - 63,
+                Math.ceil(-bloomCapacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        this.bloomHashes = Math.max(1, (int) Math.round((double) bloomBits / bloomCapacity * Math.log(2)));
+        this.bloom.set(new Bloom(bloomBits));
+    }
+
+    // Status of a transaction settled recently, or null when it has to be looked up
+    public Payment.PaymentStatus recentStatus(String transactionId) {
+        if (!bloom.get().mightContain(transactionId, bloomHashes)) {
+            return null;
+        }
+        return settled.getIfPresent(transactionId);
+    }
+
+    public void remember(String transactionId, Payment.PaymentStatus status) {
+        settled.put(transactionId, status);
+        Bloom current = bloom.get();
+        current.add(transactionId, bloomHashes);
+        if (current.count.incrementAndGet() > bloomCapacity) {
+            // Ids in the LRU must stay visible through the new filter
+            Bloom next = new Bloom(bloomBits);
+            settled.asMap().keySet().forEach(id -> next.add(id, bloomHashes));
+            bloom.compareAndSet(current, next);
+        }
+    }
+
+    private static final class Bloom {
+        final AtomicLongArray words;
+        final long bits;
+        final AtomicLong count = new AtomicLong();
+
+        Bloom(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+            this.bits = (long) words.length() * 64;
+        }
+
+        void add(String key, int hashes) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value;
+                do {
+                    value = words.get(word);
+                } while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask));
+            }
+        }
+
+        boolean mightContain(String key, int hashes) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a followed by a murmur finalizer
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
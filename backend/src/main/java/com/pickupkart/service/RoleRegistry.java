@@ -0,0 +1,58 @@
+
+package com.pickupkart.service;
+
+import com.pickupkart.model.Role;
+import com.pickupkart.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Immutable view of the fixed role documents, built once at startup.
+// Users store role names directly; the id index only serves users still holding legacy DBRefs.
+@Service
+public class RoleRegistry {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private volatile Map<Role.ERole, Role> rolesByName = Map.of();
+
+    private volatile Map<String, Role.ERole> namesById = Map.of();
+
+    @PostConstruct
+    public void load() {
+        EnumMap<Role.ERole, Role> byName = new EnumMap<>(Role.ERole.class);
+        Map<String, Role.ERole> byId = new HashMap<>();
+        for (Role.ERole name : Role.ERole.values()) {
+            Role role = roleRepository.findByName(name)
+                    .orElseGet(() -> roleRepository.save(new Role(name)));
+            byName.put(name, role);
+            byId.put(role.getId(), name);
+        }
+        rolesByName = Collections.unmodifiableMap(byName);
+        namesById = Map.copyOf(byId);
+    }
+
+    public Role get(Role.ERole name) {
+        Role role = rolesByName.get(name);
+        if (role == null) {
+            throw new RuntimeException("Error: Role " + name + " is not found.");
+        }
+        return role;
+    }
+
+    public Optional<Role.ERole> findNameById(String id) {
+        return Optional.ofNullable(namesById.get(id));
+    }
+
+    public Collection<Role> all() {
+        return rolesByName.values();
+    }
+}
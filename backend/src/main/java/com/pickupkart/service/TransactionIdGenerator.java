@@ -0,0 +1,31 @@
+
+package com.pickupkart.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transaction ids of the form TXN<16 hex: millis << 20 | sequence><6 hex: node>. Within a node the
+// counter only moves forward (up to ~1M ids per millisecond before borrowing from the next one), so ids
+// never repeat and sort by issue time; the node part keeps instances apart.
+@Component
+public class TransactionIdGenerator {
+    private static final int SEQUENCE_BITS = 20;
+
+    private final AtomicLong last = new AtomicLong();
+
+    private final String node;
+
+    public TransactionIdGenerator(@Value("${payments.node-id:-1}") int nodeId) {
+        int id = nodeId >= 0 ? nodeId : new SecureRandom().nextInt(1 << 24);
+        this.node = String.format("%06X", id & 0xFFFFFF);
+    }
+
+    public String next() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long value = last.accumulateAndGet(now, (previous, candidate) -> Math.max(previous + 1, candidate));
+        return "TXN" + String.format("%016X", value) + node;
+    }
+}
@@ -0,0 +1,104 @@
+package com.pickupkart.service;
+
+import com.mongodb.MongoException;
+import com.pickupkart.config.MongoTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs a unit of writes, e.g. a state change and its outbox event, in one session transaction on a
+// replica set, retried on the driver's transient error labels; commit time is bounded by
+// checkout.transaction.max-commit-ms (see MongoConfig). A standalone server has no transactions, so
+// there the work simply runs. Work started inside a running transaction joins it and is not retried
+// on its own. Side effects outside the database (cache evictions) go through afterCommit.
+@Component
+public class TransactionRunner {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRunner.class);
+
+    @Autowired
+    private MongoTopology mongoTopology;
+
+    @Value("${checkout.transaction.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${checkout.transaction.retry-backoff-ms:20}")
+    private long retryBackoffMillis;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionRunner(MongoTransactionManager transactionManager,
+                             @Value("${checkout.transaction.timeout-seconds:5}") int timeoutSeconds) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(timeoutSeconds);
+    }
+
+    public boolean transactional() {
+        return mongoTopology.supportsTransactions();
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        if (!transactional()) {
+            return work.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                logger.debug("Transaction attempt {} hit a transient error, retrying", attempt, e);
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Runs the action once the surrounding transaction has committed, or now if there is none, so caches
+    // are never evicted in time to be refilled from a transaction's uncommitted or rolled back state
+    public void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Only TransientTransactionError means nothing was committed, so the work can run again. An
+    // UnknownTransactionCommitResult is already retried by the driver's commit; running the work
+    // again after one could apply it twice.
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoError
+                    && mongoError.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis * attempt + ThreadLocalRandom.current().nextLong(retryBackoffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error: Transaction was interrupted.", e);
+        }
+    }
+}
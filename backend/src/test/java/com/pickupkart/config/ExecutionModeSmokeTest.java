@@ -0,0 +1,87 @@
+package com.pickupkart.config;
+
+import com.pickupkart.Application;
+import com.pickupkart.support.InMemoryMongo;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Starts the application in each execution mode against an in-memory MongoDB and checks which executor
+// Tomcat hands requests to. Throughput under load is measured by com.pickupkart.load.LoadHarness.
+class ExecutionModeSmokeTest {
+    private static InMemoryMongo mongo;
+
+    @BeforeAll
+    static void startMongo() {
+        mongo = new InMemoryMongo();
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongo.close();
+    }
+
+    @Test
+    void platformModeKeepsTomcatsWorkerPool() throws Exception {
+        try (ConfigurableApplicationContext context = start("platform")) {
+            assertThat(requestExecutor(context)).isInstanceOf(ThreadPoolExecutor.class);
+            assertThat(login(context)).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void virtualModeRunsRequestsOnVirtualThreads() throws Exception {
+        try (ConfigurableApplicationContext context = start("virtual")) {
+            Executor executor = requestExecutor(context);
+            if (Runtime.version().feature() < 21) {
+                // No virtual threads before Java 21: the mode falls back instead of failing to start
+                assertThat(executor).isInstanceOf(ThreadPoolExecutor.class);
+            } else {
+                CompletableFuture<Thread> thread = new CompletableFuture<>();
+                executor.execute(() -> thread.complete(Thread.currentThread()));
+                Thread requestThread = thread.get(5, TimeUnit.SECONDS);
+                assertThat(requestThread.getName()).startsWith("http-vt-");
+                assertThat(Thread.class.getMethod("isVirtual").invoke(requestThread)).isEqualTo(true);
+            }
+            assertThat(login(context)).isEqualTo(200);
+        }
+    }
+
+    private ConfigurableApplicationContext start(String mode) {
+        return new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongo.uri(),
+                "--mongodb.index-manager.verify-plans=false",
+                "--execution.mode=" + mode);
+    }
+
+    private static Executor requestExecutor(ConfigurableApplicationContext context) {
+        TomcatWebServer server = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+        return server.getTomcat().getConnector().getProtocolHandler().getExecutor();
+    }
+
+    // A request through the whole stack, as the user MongoDBInitializer creates
+    private static int login(ConfigurableApplicationContext context) throws Exception {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"loginName\":\"customer\",\"password\":\"customer\"}"))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,63 @@
+package com.pickupkart.config;
+
+import com.pickupkart.Application;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Per-IP login limits key on the client behind a trusted proxy: requests here come from loopback, which
+// is in server.tomcat.remoteip.internal-proxies, so their X-Forwarded-For is the address that counts.
+class ForwardedClientAddressTest {
+    private static InMemoryMongo mongo;
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        mongo = new InMemoryMongo();
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongo.uri(),
+                "--mongodb.index-manager.verify-plans=false",
+                "--auth.rate-limit.ip.per-minute=2",
+                "--auth.rate-limit.login.per-minute=1000",
+                "--auth.rate-limit.login.burst=1000");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        mongo.close();
+    }
+
+    @Test
+    void eachForwardedClientHasItsOwnLimit() throws Exception {
+        assertThat(login("203.0.113.7")).isNotEqualTo(429);
+        assertThat(login("203.0.113.7")).isNotEqualTo(429);
+        assertThat(login("203.0.113.7")).isEqualTo(429);
+
+        // Same proxy connection, different client
+        assertThat(login("203.0.113.8")).isNotEqualTo(429);
+    }
+
+    private static int login(String forwardedFor) throws Exception {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"loginName\":\"nobody\",\"password\":\"wrong\"}"))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,113 @@
+package com.pickupkart.config;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Explains every hot query shape against a real server once IndexManager has created the indexes, and
+// checks the partial unique index the in-memory test server cannot enforce. Needs Docker; skipped otherwise.
+@Testcontainers(disabledWithoutDocker = true)
+class IndexManagerExplainTest {
+    @Container
+    static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+
+    private static IndexManager indexManager;
+
+    @BeforeAll
+    static void createIndexes() {
+        client = MongoClients.create(mongo.getReplicaSetUrl("pickupkart"));
+        MongoTemplate mongoTemplate = new MongoTemplate(client, "pickupkart");
+        seed(mongoTemplate);
+
+        indexManager = new IndexManager();
+        ReflectionTestUtils.setField(indexManager, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(indexManager, "mappingContext", new MongoMappingContext());
+        indexManager.ensureIndexes();
+    }
+
+    @AfterAll
+    static void close() {
+        client.close();
+    }
+
+    @Test
+    void everyHotQueryScansItsIndex() {
+        for (IndexManager.QueryShape shape : indexManager.queryShapes()) {
+            assertThat(indexManager.winningIndexes(shape))
+                    .as(shape.toString())
+                    .contains(shape.index());
+        }
+    }
+
+    @Test
+    void noHotQueryScansTheCollection() {
+        assertThat(indexManager.findCollectionScans()).isEmpty();
+    }
+
+    @Test
+    void allowsOnePendingPaymentPerOrder() {
+        MongoCollection<Document> payments = client.getDatabase("pickupkart").getCollection("payments");
+        payments.insertOne(new Document("orderId", "once").append("status", "FAILED"));
+        payments.insertOne(new Document("orderId", "once").append("status", "PENDING"));
+
+        assertThatThrownBy(() -> payments.insertOne(new Document("orderId", "once").append("status", "PENDING")))
+                .isInstanceOf(MongoWriteException.class)
+                .hasMessageContaining(IndexManager.PAYMENT_PENDING_ORDER_INDEX);
+    }
+
+    // Enough spread in every indexed field that the planner has real choices to make
+    private static void seed(MongoTemplate mongoTemplate) {
+        String[] statuses = {"PENDING", "CONFIRMED", "SHIPPED", "DELIVERED", "CANCELLED"};
+        List<Document> orders = new ArrayList<>();
+        List<Document> payments = new ArrayList<>();
+        List<Document> products = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Date date = new Date(1_700_000_000_000L + i * 60_000L);
+            String orderId = new ObjectId().toHexString();
+            orders.add(new Document("_id", new ObjectId(orderId))
+                    .append("customerId", "c" + (i % 50))
+                    .append("productId", "p" + (i % 200))
+                    .append("courierId", "k" + (i % 5))
+                    .append("status", statuses[i % statuses.length])
+                    .append("orderDate", date));
+            payments.add(new Document("orderId", orderId)
+                    .append("customerId", "c" + (i % 50))
+                    .append("transactionId", "tx" + i)
+                    .append("status", i % 3 == 0 ? "PENDING" : "COMPLETED")
+                    .append("paymentDate", date));
+            if (i < 500) {
+                products.add(new Document("name", "product " + i).append("quantity", i % 4));
+            }
+        }
+        mongoTemplate.getCollection("orders").insertMany(orders);
+        mongoTemplate.getCollection("payments").insertMany(payments);
+        mongoTemplate.getCollection("products").insertMany(products);
+        mongoTemplate.getCollection("couriers").insertMany(List.of(
+                new Document("name", "Listed").append("isCustom", false),
+                new Document("name", "Other").append("isCustom", true)));
+        for (int i = 0; i < 200; i++) {
+            mongoTemplate.getCollection("order_events").insertOne(new Document("state", i % 10 == 0 ? "PENDING" : "DISPATCHED"));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pickupkart.config;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexManagerTest {
+
+    private static DuplicateKeyException duplicate(String serverMessage) {
+        MongoWriteException cause = new MongoWriteException(
+                new WriteError(11000, serverMessage, new BsonDocument()), new ServerAddress());
+        return new DuplicateKeyException(cause.getMessage(), cause);
+    }
+
+    @Test
+    void readsTheViolatedIndexName() {
+        DuplicateKeyException e = duplicate("E11000 duplicate key error collection: pickupkart.users "
+                + "index: email dup key: { email: \"alice@example.com\" }");
+
+        assertThat(IndexManager.violatedIndex(e)).isEqualTo(IndexManager.USER_EMAIL_INDEX);
+    }
+
+    @Test
+    void doesNotConfuseIndexNamesWithKeyValues() {
+        // The login name itself mentions the other index
+        DuplicateKeyException e = duplicate("E11000 duplicate key error collection: pickupkart.users "
+                + "index: loginName dup key: { loginName: \"index: email dup key\" }");
+
+        assertThat(IndexManager.violatedIndex(e)).isEqualTo(IndexManager.USER_LOGIN_NAME_INDEX);
+    }
+
+    @Test
+    void returnsNullWithoutADriverError() {
+        assertThat(IndexManager.violatedIndex(new DuplicateKeyException("duplicate"))).isNull();
+    }
+}
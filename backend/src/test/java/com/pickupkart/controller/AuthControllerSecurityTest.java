@@ -0,0 +1,166 @@
+package com.pickupkart.controller;
+
+import com.pickupkart.config.SecurityConfig;
+import com.pickupkart.model.Role;
+import com.pickupkart.model.User;
+import com.pickupkart.repository.UserRepository;
+import com.pickupkart.security.jwt.AuthEntryPointJwt;
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.ratelimit.LoginRateLimiter;
+import com.pickupkart.security.services.PasswordHashingService;
+import com.pickupkart.security.services.TokenVersionService;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.security.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Requests go through the real security chain with the deployed context path (/api)
+@WebMvcTest(AuthController.class)
+@Import({SecurityConfig.class, AuthEntryPointJwt.class})
+class AuthControllerSecurityTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockBean
+    private JwtUtils jwtUtils;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private LoginRateLimiter loginRateLimiter;
+
+    @MockBean
+    private TokenVersionService tokenVersionService;
+
+    @BeforeEach
+    void setUp() {
+        when(loginRateLimiter.tryAcquire(anyString(), anyString())).thenReturn(true);
+        when(passwordHashingService.submit(any())).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(invocation.<Supplier<?>>getArgument(0)));
+        when(passwordHashingService.matches(any(), anyString())).thenReturn(true);
+        when(passwordHashingService.encode(any())).thenReturn("hashed");
+        when(jwtUtils.generateJwtToken(any())).thenReturn("token");
+    }
+
+    @Test
+    void anonymousLoginIsNotRejected() throws Exception {
+        User user = user();
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(UserDetailsImpl.build(user));
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login").contextPath("/api")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"loginName\":\"alice\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The response is written on the async dispatch, which passes the security chain again
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("token"));
+    }
+
+    @Test
+    void theUserIsLoadedOnTheRequestThreadAndOnlyTheHashCheckIsPooled() throws Exception {
+        Thread requestThread = Thread.currentThread();
+        AtomicReference<Thread> lookupThread = new AtomicReference<>();
+        AtomicReference<Thread> matchThread = new AtomicReference<>();
+        when(userDetailsService.loadUserByUsername("alice")).thenAnswer(invocation -> {
+            lookupThread.set(Thread.currentThread());
+            return UserDetailsImpl.build(user());
+        });
+        when(passwordHashingService.matches(any(), anyString())).thenAnswer(invocation -> {
+            matchThread.set(Thread.currentThread());
+            return false;
+        });
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login").contextPath("/api")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"loginName\":\"alice\",\"password\":\"wrong\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());
+
+        assertThat(lookupThread.get()).isSameAs(requestThread);
+        assertThat(matchThread.get()).isNotNull().isNotSameAs(requestThread);
+    }
+
+    @Test
+    void anUnknownLoginNameStillPaysForAHashCheck() throws Exception {
+        when(userDetailsService.loadUserByUsername("ghost"))
+                .thenThrow(new UsernameNotFoundException("User Not Found with username: ghost"));
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login").contextPath("/api")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"loginName\":\"ghost\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());
+
+        verify(passwordHashingService).matches(eq("secret"), eq("hashed"));
+    }
+
+    @Test
+    void anonymousRegisterIsNotRejected() throws Exception {
+        when(userRepository.insert(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MvcResult result = mockMvc.perform(post("/api/auth/register").contextPath("/api")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\":\"Alice\",\"loginName\":\"alice\",\"password\":\"secret\","
+                                + "\"email\":\"alice@example.com\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void anonymousRequestsElsewhereAreRejected() throws Exception {
+        mockMvc.perform(get("/api/orders/my").contextPath("/api"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId("u1");
+        user.setLoginName("alice");
+        user.setPassword("hashed");
+        user.setRoles(Set.of(Role.ERole.CUSTOMER));
+        return user;
+    }
+}
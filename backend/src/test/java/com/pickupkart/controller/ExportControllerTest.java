@@ -0,0 +1,180 @@
+package com.pickupkart.controller;
+
+import com.pickupkart.config.SecurityConfig;
+import com.pickupkart.security.jwt.AuthEntryPointJwt;
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.services.PasswordHashingService;
+import com.pickupkart.security.services.UserDetailsServiceImpl;
+import com.pickupkart.service.ExportService;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Export permits come back however the async request ends, and exactly once. Streaming bodies are parked
+// instead of run, so each test decides whether an export ever gets a thread.
+@WebMvcTest(ExportController.class)
+@Import({SecurityConfig.class, AuthEntryPointJwt.class, ExportService.class, ExportControllerTest.ParkingAsyncConfig.class})
+@TestPropertySource(properties = {"exports.max-concurrent=1", "exports.async-timeout-ms=1234"})
+@WithMockUser(roles = "ADMIN")
+class ExportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ParkingExecutor executor;
+
+    @MockBean
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockBean
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        executor.parked.clear();
+    }
+
+    @Test
+    void permitIsReleasedWhenTheRequestTimesOutBeforeTheExportRuns() throws Exception {
+        MvcResult parked = export();
+        MvcResult rejected = mockMvc.perform(get("/api/exports/orders").contextPath("/api"))
+                .andExpect(status().isTooManyRequests())
+                .andReturn();
+
+        timeOut(parked);
+        assertThat(availablePermits()).isEqualTo(1);
+        ((MockAsyncContext) parked.getRequest().getAsyncContext()).complete();
+        assertThat(availablePermits()).isEqualTo(1);
+
+        // The timed-out export was cancelled; the rejection message is still written
+        executor.runParked();
+        assertThat(rejected.getResponse().getContentAsString()).contains("Too many exports are running");
+        assertThat(availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void permitIsReleasedOnceWhenTheExportFails() throws Exception {
+        when(mongoTemplate.getCollection("orders")).thenThrow(new IllegalStateException("database unavailable"));
+        MvcResult result = export();
+
+        executor.runParked();
+        assertThat(result.getAsyncResult(5_000)).isInstanceOf(IllegalStateException.class);
+        ((MockAsyncContext) result.getRequest().getAsyncContext()).complete();
+
+        assertThat(availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void exportsGetTheirOwnAsyncTimeout() throws Exception {
+        MvcResult parked = export();
+
+        assertThat(parked.getRequest().getAsyncContext().getTimeout()).isEqualTo(1234);
+        executor.runParked();
+    }
+
+    private MvcResult export() throws Exception {
+        return mockMvc.perform(get("/api/exports/orders").contextPath("/api"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static void timeOut(MvcResult result) throws IOException {
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+    }
+
+    private int availablePermits() {
+        return ((Semaphore) ReflectionTestUtils.getField(exportService, "running")).availablePermits();
+    }
+
+    @TestConfiguration
+    static class ParkingAsyncConfig implements WebMvcConfigurer {
+        private final ParkingExecutor executor = new ParkingExecutor();
+
+        @Bean
+        ParkingExecutor parkingExecutor() {
+            return executor;
+        }
+
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            configurer.setTaskExecutor(executor);
+        }
+    }
+
+    // Holds submitted tasks until the test runs them, as a saturated executor would
+    static class ParkingExecutor implements AsyncTaskExecutor {
+        final List<FutureTask<?>> parked = new CopyOnWriteArrayList<>();
+
+        void runParked() {
+            parked.forEach(FutureTask::run);
+            parked.clear();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            submit(task);
+        }
+
+        @Override
+        public void execute(Runnable task, long startTimeout) {
+            submit(task);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            FutureTask<Object> future = new FutureTask<>(task, null);
+            parked.add(future);
+            return future;
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            FutureTask<T> future = new FutureTask<>(task);
+            parked.add(future);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pickupkart.controller;
+
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.service.ReceiptService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Receipt downloads: access is decided before the receipt is loaded, and If-None-Match is parsed as a list
+class PaymentControllerTest {
+    private static final String ETAG = "\"5d41402abc4b2a76b9719d911017c592\"";
+
+    private final ReceiptService receiptService = mock(ReceiptService.class);
+
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new PaymentController();
+        controller.receiptService = receiptService;
+        ReceiptService.Receipt receipt = new ReceiptService.Receipt("payment-1", "order-1", "customer-1",
+                "<html></html>".getBytes(StandardCharsets.UTF_8), ETAG, "receipt-payment-1.html");
+        when(receiptService.findCustomerId("payment-1")).thenReturn(Optional.of("customer-1"));
+        when(receiptService.getReceipt("payment-1")).thenReturn(Optional.of(receipt));
+    }
+
+    @Test
+    void anotherCustomersReceiptIsRefusedWithoutBeingLoaded() {
+        ResponseEntity<?> response = controller.getReceipt(user("customer-2", "CUSTOMER"), "payment-1", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verify(receiptService, never()).getReceipt(anyString());
+    }
+
+    @Test
+    void anUnknownPaymentIsNotFoundWithoutBeingLoaded() {
+        when(receiptService.findCustomerId("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = controller.getReceipt(user("customer-1", "CUSTOMER"), "missing", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        verify(receiptService, never()).getReceipt(anyString());
+    }
+
+    @Test
+    void theOwnerAndAdminsGetTheReceipt() {
+        assertThat(controller.getReceipt(user("customer-1", "CUSTOMER"), "payment-1", null).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(controller.getReceipt(user("admin-1", "ADMIN"), "payment-1", null).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void ifNoneMatchComparesWholeEntityTags() {
+        assertThat(notModified(ETAG)).isTrue();
+        assertThat(notModified("\"other\", " + ETAG)).isTrue();
+        assertThat(notModified("W/" + ETAG)).isTrue();
+        assertThat(notModified("*")).isTrue();
+        // A tag that merely contains the current one, or is contained in it, is a different tag
+        assertThat(notModified("\"x" + ETAG.substring(1))).isFalse();
+        assertThat(notModified("\"5d41402abc4b2a76b9719d911017c592-old\"")).isFalse();
+        assertThat(notModified("\"5d41402a\"")).isFalse();
+    }
+
+    private boolean notModified(String ifNoneMatch) {
+        return controller.getReceipt(user("customer-1", "CUSTOMER"), "payment-1", ifNoneMatch).getStatusCode()
+                == HttpStatus.NOT_MODIFIED;
+    }
+
+    private static UserDetailsImpl user(String id, String role) {
+        return new UserDetailsImpl(id, null, id, null, null, null, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
+}
@@ -0,0 +1,150 @@
+package com.pickupkart.controller;
+
+import com.pickupkart.config.SecurityConfig;
+import com.pickupkart.model.Role;
+import com.pickupkart.model.User;
+import com.pickupkart.repository.UserRepository;
+import com.pickupkart.security.jwt.AuthEntryPointJwt;
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.ratelimit.LoginRateLimiter;
+import com.pickupkart.security.services.PasswordHashingService;
+import com.pickupkart.security.services.TokenVersionService;
+import com.pickupkart.security.services.UserDetailsCache;
+import com.pickupkart.security.services.UserDetailsCacheInvalidator;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.security.services.UserDetailsServiceImpl;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Real JwtUtils and TokenVersionService over an in-memory MongoDB: revoked tokens are refused by the filter
+@WebMvcTest(AuthController.class)
+@Import({SecurityConfig.class, AuthEntryPointJwt.class, JwtUtils.class, TokenVersionService.class,
+        UserDetailsCacheInvalidator.class, TokenRevocationTest.Mongo.class})
+class TokenRevocationTest {
+    private static final InMemoryMongo mongo = new InMemoryMongo();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private LoginRateLimiter loginRateLimiter;
+
+    @MockBean
+    private UserDetailsCache userDetailsCache;
+
+    private User user;
+
+    @TestConfiguration
+    static class Mongo {
+        @Bean
+        MongoTemplate mongoTemplate() {
+            return mongo.mongoTemplate();
+        }
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongo.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(User.class);
+        user = new User();
+        user.setLoginName("alice");
+        user.setPassword("hashed");
+        user.setRoles(Set.of(Role.ERole.ADMIN));
+        mongoTemplate.insert(user);
+        when(userDetailsService.loadCachedUserByUsername("alice"))
+                .thenAnswer(invocation -> UserDetailsImpl.build(mongoTemplate.findById(user.getId(), User.class)));
+    }
+
+    @Test
+    void logoutRevokesTheTokenItWasCalledWith() throws Exception {
+        String token = token();
+
+        logout(token).andExpect(status().isOk());
+
+        logout(token).andExpect(status().isUnauthorized());
+        logout(token()).andExpect(status().isOk());
+    }
+
+    @Test
+    void savingChangedRolesRevokesEarlierTokens() throws Exception {
+        String token = token();
+
+        User demoted = mongoTemplate.findById(user.getId(), User.class);
+        demoted.setRoles(Set.of(Role.ERole.CUSTOMER));
+        mongoTemplate.save(demoted);
+
+        logout(token).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void savingOtherFieldsKeepsTokensValid() throws Exception {
+        String token = token();
+
+        User moved = mongoTemplate.findById(user.getId(), User.class);
+        moved.setAddress("New address");
+        mongoTemplate.save(moved);
+
+        logout(token).andExpect(status().isOk());
+    }
+
+    @Test
+    void aStaleSaveDoesNotUndoARevocation() throws Exception {
+        User stale = mongoTemplate.findById(user.getId(), User.class);
+        String token = token();
+        logout(token).andExpect(status().isOk());
+
+        stale.setAddress("New address");
+        mongoTemplate.save(stale);
+
+        assertThat(mongoTemplate.findById(user.getId(), User.class).getTokenVersion()).isEqualTo(1);
+        logout(token).andExpect(status().isUnauthorized());
+    }
+
+    private ResultActions logout(String token) throws Exception {
+        return mockMvc.perform(post("/api/auth/logout").contextPath("/api")
+                .header("Authorization", "Bearer " + token));
+    }
+
+    private String token() {
+        UserDetailsImpl principal = UserDetailsImpl.build(mongoTemplate.findById(user.getId(), User.class));
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
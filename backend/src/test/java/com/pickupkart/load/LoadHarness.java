@@ -0,0 +1,203 @@
+package com.pickupkart.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop HTTP load test: each of N clients sends a request, waits for the response and sends the
+// next, for a warm-up and then a measured period. Reports throughput, p50/p99/max latency and errors
+// per target and client count, so running instances can be compared under identical load, e.g.
+// execution.mode=platform against virtual, or the MVC application against the reactive one.
+//
+// Start the instances first, each against the same database, then:
+//   mvn -Pload test -DskipTests -Dload.targets=platform=http://localhost:8080/api,virtual=http://localhost:8082/api
+// with the second started as: java -jar target/pickupkart-api-*.jar --execution.mode=virtual --server.port=8082
+// For MVC against the reactive read application (ReactiveReadApplication, port 8081):
+//   mvn -Pload test -DskipTests -Dload.targets=mvc=http://localhost:8080/api,reactive=http://localhost:8081/api
+// The token comes from the MVC login at load.auth-url (by default the first target); both stacks accept it.
+// The default load.path, /orders/my, reads the signed-in customer's orders from MongoDB on every request,
+// so it measures how each mode waits on the database. In the MVC application /products and /couriers are
+// served from the in-memory CatalogCache and /products/search, /products/suggest and /couriers/quotes from
+// in-memory indexes and rate tables: they hold no thread on I/O and barely tell the execution modes apart.
+// load.accept=application/x-ndjson requests the reactive application's streaming /orders/my, /products and /couriers.
+// Requests are asynchronous, so 20,000 clients need no 20,000 threads here, but they do need that many
+// sockets: raise the open file limit (ulimit -n) on both ends, and server.tomcat.max-connections.
+public final class LoadHarness {
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final HttpClient client;
+
+    private final String path;
+
+    private final String accept;
+
+    private final Duration warmup;
+
+    private final Duration measured;
+
+    private LoadHarness(HttpClient client, String path, String accept, Duration warmup, Duration measured) {
+        this.client = client;
+        this.path = path;
+        this.accept = accept;
+        this.warmup = warmup;
+        this.measured = measured;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (String target : System.getProperty("load.targets", "app=http://localhost:8080/api").split(",")) {
+            String[] nameAndUrl = target.trim().split("=", 2);
+            targets.put(nameAndUrl[0], nameAndUrl.length > 1 ? nameAndUrl[1] : nameAndUrl[0]);
+        }
+        int[] levels = Arrays.stream(System.getProperty("load.clients", "200,2000,20000").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+        String path = System.getProperty("load.path", "/orders/my");
+        String accept = System.getProperty("load.accept", "application/json");
+        String authUrl = System.getProperty("load.auth-url", "");
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+        Duration measured = Duration.ofSeconds(Long.getLong("load.duration-seconds", 30));
+        String login = System.getProperty("load.login", "customer");
+        String password = System.getProperty("load.password", "customer");
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(callbacks)
+                .build();
+        LoadHarness harness = new LoadHarness(client, path, accept, warmup, measured);
+        try {
+            System.out.printf("%-12s %8s %12s %10s %10s %10s %8s%n",
+                    "target", "clients", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+            String token = harness.login(authUrl.isEmpty() ? targets.values().iterator().next() : authUrl, login, password);
+            for (Map.Entry<String, String> target : targets.entrySet()) {
+                for (int clients : levels) {
+                    Result result = harness.run(target.getValue(), token, clients);
+                    System.out.printf("%-12s %8d %12.1f %10.1f %10.1f %10.1f %8d%n", target.getKey(), clients,
+                            result.throughput(), result.percentile(50), result.percentile(99), result.percentile(100),
+                            result.errors());
+                }
+            }
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    private String login(String baseUrl, String login, String password) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"loginName\":\"" + login + "\",\"password\":\"" + password + "\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher token = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !token.find()) {
+            throw new IllegalStateException("Login to " + baseUrl + " failed with status " + response.statusCode());
+        }
+        return token.group(1);
+    }
+
+    private Result run(String baseUrl, String token, int clients) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", accept)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + measured.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Client> running = new ArrayList<>(clients);
+        CompletableFuture<?>[] done = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            Client loop = new Client(request, measureFrom, measureUntil, errors);
+            running.add(loop);
+            done[i] = loop.start();
+        }
+        CompletableFuture.allOf(done).join();
+
+        long[] latencies = running.stream()
+                .flatMapToLong(loop -> Arrays.stream(loop.latencies, 0, loop.count))
+                .sorted()
+                .toArray();
+        return new Result(latencies, measured, errors.get());
+    }
+
+    // One client: the next request goes out when the previous response is in, so callbacks never overlap
+    private final class Client {
+        private final HttpRequest request;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final AtomicLong errors;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long[] latencies = new long[256];
+        private int count;
+
+        Client(HttpRequest request, long measureFrom, long measureUntil, AtomicLong errors) {
+            this.request = request;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.errors = errors;
+        }
+
+        CompletableFuture<Void> start() {
+            next();
+            return done;
+        }
+
+        private void next() {
+            long sentAt = System.nanoTime();
+            if (sentAt >= measureUntil) {
+                done.complete(null);
+                return;
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long receivedAt = System.nanoTime();
+                if (sentAt >= measureFrom && receivedAt < measureUntil) {
+                    if (error != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        record(receivedAt - sentAt);
+                    }
+                }
+                next();
+            });
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private record Result(long[] latencies, Duration measured, long errors) {
+        double throughput() {
+            return latencies.length / (measured.toNanos() / 1e9);
+        }
+
+        double percentile(int percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
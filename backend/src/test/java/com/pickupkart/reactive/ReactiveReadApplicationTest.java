@@ -0,0 +1,104 @@
+package com.pickupkart.reactive;
+
+import com.pickupkart.model.Product;
+import com.pickupkart.model.Role;
+import com.pickupkart.model.User;
+import com.pickupkart.security.jwt.JwtUtils;
+import com.pickupkart.security.services.UserDetailsImpl;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+// Starts the reactive read application on a real port, with its profile, against an in-memory MongoDB.
+// Load comparisons against the MVC application are run with com.pickupkart.load.LoadHarness.
+@SpringBootTest(classes = ReactiveReadApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+class ReactiveReadApplicationTest {
+    private static InMemoryMongo mongo;
+
+    private static User customer;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @BeforeAll
+    static void startMongo() {
+        mongo = new InMemoryMongo();
+        customer = new User();
+        customer.setLoginName("customer");
+        customer.setRoles(Set.of(Role.ERole.CUSTOMER));
+        customer.onCreate();
+        mongo.mongoTemplate().insert(customer);
+        mongo.mongoTemplate().insert(product("Laptop", 5));
+        mongo.mongoTemplate().insert(product("Headphones", 0));
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongo.close();
+    }
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.uri());
+    }
+
+    // The client's base URL already ends in spring.webflux.base-path (/api)
+    @Test
+    void servesTheCatalogToAnAuthenticatedCustomer() {
+        webTestClient.get().uri("/products")
+                .header("Authorization", "Bearer " + token())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].name").isEqualTo("Headphones")
+                .jsonPath("$[1].name").isEqualTo("Laptop");
+
+        webTestClient.get().uri("/products?inStock=true")
+                .header("Authorization", "Bearer " + token())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void rejectsRequestsWithoutAToken() {
+        webTestClient.get().uri("/products")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    private String token() {
+        UserDetailsImpl principal = UserDetailsImpl.build(customer);
+        return jwtUtils.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static Product product(String name, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("100.00"));
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,50 @@
+package com.pickupkart.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Token parse + validate per request: the parser built once at startup against the previous
+// per-call path (decode the secret, build a key and a parser for every token).
+// mvn -Pbenchmark test -Dbenchmark=JwtUtilsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+    private JwtUtils jwtUtils;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = JwtUtilsTest.jwtUtils(JwtUtilsTest.SECRET, "HS256");
+        token = jwtUtils.generateJwtToken(JwtUtilsTest.authentication("alice"));
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return jwtUtils.parseJwtClaims(token);
+    }
+
+    @Benchmark
+    public Claims parserPerCall() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JwtUtilsTest.SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Claims sharedParserContended() {
+        return jwtUtils.parseJwtClaims(token);
+    }
+}
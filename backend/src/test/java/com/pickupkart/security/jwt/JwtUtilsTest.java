@@ -0,0 +1,70 @@
+package com.pickupkart.security.jwt;
+
+import com.pickupkart.security.services.TokenVersionService;
+import com.pickupkart.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class JwtUtilsTest {
+    // The secret from application.properties: 320 bits
+    static final String SECRET = "pickupkartSecretKey987654321AbCdEfGhIjKlMnOpQrStUvWxYz";
+
+    static JwtUtils jwtUtils(String secret, String algorithm) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", secret);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "primary");
+        ReflectionTestUtils.setField(jwtUtils, "jwtPreviousKeys", "");
+        ReflectionTestUtils.setField(jwtUtils, "jwtAlgorithm", algorithm);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "tokenVersionService", mock(TokenVersionService.class));
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    static Authentication authentication(String loginName) {
+        UserDetailsImpl user = new UserDetailsImpl("u1", null, loginName, null, null, null, null,
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    @Test
+    void signsAndParsesWithTheConfiguredAlgorithm() {
+        JwtUtils jwtUtils = jwtUtils(SECRET, "HS256");
+        String token = jwtUtils.generateJwtToken(authentication("alice"));
+
+        Claims claims = jwtUtils.parseJwtClaims(token);
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("alice");
+    }
+
+    @Test
+    void secretTooShortForTheAlgorithmFailsStartup() {
+        assertThatThrownBy(() -> jwtUtils(SECRET, "HS512"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("320 bits");
+    }
+
+    @Test
+    void nonHmacAlgorithmFailsStartup() {
+        assertThatThrownBy(() -> jwtUtils(SECRET, "RS256"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        JwtUtils jwtUtils = jwtUtils(SECRET, "HS256");
+        String token = jwtUtils.generateJwtToken(authentication("alice"));
+
+        assertThat(jwtUtils.parseJwtClaims(token.substring(0, token.length() - 2) + "xx")).isNull();
+    }
+}
@@ -0,0 +1,93 @@
+package com.pickupkart.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    @Test
+    void countsASingleKeyExactly() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        for (int i = 1; i <= 100; i++) {
+            assertThat(sketch.increment("10.0.0.1")).isEqualTo(i);
+        }
+        assertThat(sketch.estimate("10.0.0.1")).isEqualTo(100);
+        assertThat(sketch.estimate("10.0.0.2")).isZero();
+    }
+
+    @Test
+    void neverUndercountsUnderCollisions() {
+        // 64 columns for 5,000 keys: every row collides heavily
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        Map<String, Integer> actual = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 50_000; i++) {
+            String key = "10.0." + random.nextInt(100) + "." + random.nextInt(50);
+            actual.merge(key, 1, Integer::sum);
+            sketch.increment(key);
+            total++;
+        }
+        for (Map.Entry<String, Integer> entry : actual.entrySet()) {
+            assertThat(sketch.estimate(entry.getKey()))
+                    .isGreaterThanOrEqualTo(entry.getValue())
+                    .isLessThanOrEqualTo(total);
+        }
+    }
+
+    @Test
+    void wideSketchKeepsOvercountSmall() {
+        CountMinSketch sketch = new CountMinSketch(4, 65536);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.increment("key-" + i);
+        }
+        long overcounted = 0;
+        for (int i = 0; i < 10_000; i++) {
+            overcounted += sketch.estimate("key-" + i) - 1;
+        }
+        assertThat(overcounted).isLessThan(100);
+    }
+
+    @Test
+    void keysWithTheSameStringHashCodeAreCountedApart() {
+        // "Aa" and "BB" share String.hashCode, as do all 2^n strings built from those two blocks
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(4, 1024, 42);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("AaAaAaAa");
+        }
+        assertThat(sketch.estimate("BBBBBBBB")).isZero();
+        assertThat(sketch.estimate("AaBBAaBB")).isZero();
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws InterruptedException {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sketch.increment("shared");
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(sketch.estimate("shared")).isEqualTo(80_000);
+    }
+
+    @Test
+    void rejectsUnsupportedDepth() {
+        assertThatThrownBy(() -> new CountMinSketch(0, 16)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CountMinSketch(9, 16)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.pickupkart.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the login throttle per attempt, with the default limits and sketch size.
+// mixedKeys spreads attempts over many names and addresses (mostly allowed, buckets created and evicted);
+// hotKey hammers one name from one address (throttled after the burst, the CAS loop under contention).
+// mvn -Pbenchmark test -Dbenchmark=LoginRateLimiterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoginRateLimiterBenchmark {
+    private static final int NAMES = 100_000;
+
+    private static final int ADDRESSES = 10_000;
+
+    private LoginRateLimiter limiter;
+
+    private String[] names;
+
+    private String[] addresses;
+
+    @Setup
+    public void setUp() {
+        limiter = new LoginRateLimiter(true, 10, 5, 100_000, 60, 4, 65536, new SimpleMeterRegistry());
+        names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "user" + i;
+        }
+        addresses = new String[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = "10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    @Benchmark
+    public boolean mixedKeys() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return limiter.tryAcquire(names[random.nextInt(NAMES)], addresses[random.nextInt(ADDRESSES)]);
+    }
+
+    @Benchmark
+    public boolean hotKey() {
+        return limiter.tryAcquire("alice", "10.0.0.1");
+    }
+}
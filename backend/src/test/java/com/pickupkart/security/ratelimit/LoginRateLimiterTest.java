@@ -0,0 +1,80 @@
+package com.pickupkart.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+    // 10 per minute: one token every 6 seconds, bursts of 5
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(6);
+
+    private static LoginRateLimiter limiter(boolean enabled, long ipPerMinute) {
+        return new LoginRateLimiter(enabled, 10, 5, 1000, ipPerMinute, 4, 1024, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void allowsTheBurstThenThrottles() {
+        LoginRateLimiter limiter = limiter(true, 1000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("alice", "10.0.0.1", now)).isTrue();
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1", now)).isFalse();
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        LoginRateLimiter limiter = limiter(true, 1000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("alice", "10.0.0.1", now);
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1", now + INTERVAL - 1)).isFalse();
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1", now + INTERVAL)).isTrue();
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1", now + INTERVAL)).isFalse();
+    }
+
+    @Test
+    void deniedAttemptsDoNotConsumeTokens() {
+        LoginRateLimiter limiter = limiter(true, 1000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("alice", "10.0.0.1", now);
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1", now + INTERVAL)).isTrue();
+    }
+
+    @Test
+    void loginNamesAreCaseInsensitiveAndSeparate() {
+        LoginRateLimiter limiter = limiter(true, 1000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("Alice", "10.0.0.1", now);
+        }
+        assertThat(limiter.tryAcquire("ALICE", "10.0.0.1", now)).isFalse();
+        assertThat(limiter.tryAcquire("bob", "10.0.0.1", now)).isTrue();
+    }
+
+    @Test
+    void throttlesAnAddressAcrossLoginNames() {
+        LoginRateLimiter limiter = limiter(true, 20);
+        long now = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.tryAcquire("user" + i, "10.0.0.1", now)).isTrue();
+        }
+        assertThat(limiter.tryAcquire("another", "10.0.0.1", now)).isFalse();
+        assertThat(limiter.tryAcquire("another", "10.0.0.2", now)).isTrue();
+    }
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        LoginRateLimiter limiter = limiter(false, 1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire("alice", "10.0.0.1", now)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pickupkart.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowSketchTest {
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+
+    @Test
+    void countsWithinTheCurrentWindow() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(WINDOW, 4, 1024, 0);
+        for (int i = 1; i <= 10; i++) {
+            assertThat(sketch.incrementAndEstimate("ip", TimeUnit.SECONDS.toNanos(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void weightsThePreviousWindowByItsOverlap() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(WINDOW, 4, 1024, 0);
+        for (int i = 0; i < 10; i++) {
+            sketch.incrementAndEstimate("ip", TimeUnit.SECONDS.toNanos(1));
+        }
+        // Half way through the next window half of the previous one still counts: 1 + 10 * 0.5
+        assertThat(sketch.incrementAndEstimate("ip", WINDOW + WINDOW / 2)).isEqualTo(6);
+    }
+
+    @Test
+    void forgetsAfterTwoQuietWindows() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(WINDOW, 4, 1024, 0);
+        for (int i = 0; i < 10; i++) {
+            sketch.incrementAndEstimate("ip", TimeUnit.SECONDS.toNanos(1));
+        }
+        assertThat(sketch.incrementAndEstimate("ip", 2 * WINDOW + 1)).isEqualTo(1);
+    }
+
+    @Test
+    void keysAreCountedSeparately() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(WINDOW, 4, 1024, 0);
+        for (int i = 0; i < 5; i++) {
+            sketch.incrementAndEstimate("a", 0);
+        }
+        assertThat(sketch.incrementAndEstimate("b", 0)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,176 @@
+package com.pickupkart.security.services;
+
+import com.pickupkart.model.Role;
+import com.pickupkart.model.User;
+import com.pickupkart.support.InMemoryMongo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class UserDetailsCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void servesRepeatReadsFromTheCache() {
+        UserDetailsCache cache = cache(10);
+
+        assertThat(cache.get("alice", loader()).getUsername()).isEqualTo("alice");
+        assertThat(cache.get("alice", loader()).getUsername()).isEqualTo("alice");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reloadsOnceTheTtlHasPassed() {
+        UserDetailsCache cache = cache(10);
+        cache.get("alice", loader());
+
+        nanos.addAndGet(Duration.ofSeconds(299).toNanos());
+        cache.get("alice", loader());
+        assertThat(loads).hasValue(1);
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("alice", loader());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        UserDetailsCache cache = cache(10);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, UserDetailsImpl> slowLoader = name -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader().apply(name);
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<UserDetailsImpl>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> cache.get("alice", slowLoader)));
+        }
+
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<UserDetailsImpl> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getUsername()).isEqualTo("alice");
+        }
+        pool.shutdown();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void aFailedLoadIsNotCached() {
+        UserDetailsCache cache = cache(10);
+        Function<String, UserDetailsImpl> missing = name -> {
+            loads.incrementAndGet();
+            throw new UsernameNotFoundException("User Not Found with username: " + name);
+        };
+
+        assertThatThrownBy(() -> cache.get("ghost", missing)).isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> cache.get("ghost", missing)).isInstanceOf(UsernameNotFoundException.class);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void savingAUserOrARoleEvictsCachedPrincipals() {
+        InMemoryMongo mongo = new InMemoryMongo();
+        try {
+            MongoTemplate mongoTemplate = mongo.mongoTemplate();
+            UserDetailsCache cache = cache(10);
+            UserDetailsCacheInvalidator invalidator = new UserDetailsCacheInvalidator();
+            ReflectionTestUtils.setField(invalidator, "userDetailsCache", cache);
+            ReflectionTestUtils.setField(invalidator, "tokenVersionService", mock(TokenVersionService.class));
+            ReflectionTestUtils.setField(invalidator, "mongoTemplate", mongoTemplate);
+            StaticApplicationContext context = new StaticApplicationContext();
+            context.addApplicationListener(invalidator);
+            context.refresh();
+            mongoTemplate.setApplicationContext(context);
+
+            User user = new User();
+            user.setLoginName("alice");
+            user.setRoles(Set.of(Role.ERole.CUSTOMER));
+            mongoTemplate.insert(user);
+            Function<String, UserDetailsImpl> fromMongo = name -> {
+                loads.incrementAndGet();
+                return UserDetailsImpl.build(mongoTemplate.findById(user.getId(), User.class));
+            };
+
+            cache.get("alice", fromMongo);
+            cache.get("alice", fromMongo);
+            assertThat(loads).hasValue(1);
+
+            user.setRoles(Set.of(Role.ERole.ADMIN));
+            mongoTemplate.save(user);
+            assertThat(cache.get("alice", fromMongo).getRole()).isEqualTo("ADMIN");
+            assertThat(loads).hasValue(2);
+
+            mongoTemplate.save(new Role(Role.ERole.ADMIN));
+            cache.get("alice", fromMongo);
+            assertThat(loads).hasValue(3);
+        } finally {
+            mongo.close();
+        }
+    }
+
+    @Test
+    void publishesHitMissAndEvictionMetrics() {
+        UserDetailsCache cache = cache(1);
+        cache.get("alice", loader());
+        cache.get("alice", loader());
+        // Over max-size: the cache evicts one of the two
+        cache.get("bob", loader());
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", UserDetailsCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", UserDetailsCache.CACHE_NAME).tag("result", "miss")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", UserDetailsCache.CACHE_NAME)
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    private UserDetailsCache cache(long maxSize) {
+        return new UserDetailsCache(true, maxSize, 300, meterRegistry, nanos::get, Runnable::run);
+    }
+
+    private Function<String, UserDetailsImpl> loader() {
+        return name -> {
+            loads.incrementAndGet();
+            User user = new User();
+            user.setId(name + "-id");
+            user.setLoginName(name);
+            user.setRoles(Set.of(Role.ERole.CUSTOMER));
+            return UserDetailsImpl.build(user);
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.pickupkart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.pickupkart.model.Product;
+import com.pickupkart.support.InMemoryMongo;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CatalogCacheTest {
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    private ObjectMapper objectMapper;
+
+    private ProductSearchIndex productSearchIndex;
+
+    private CatalogCache catalogCache;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productSearchIndex = new ProductSearchIndex(256);
+        catalogCache = new CatalogCache();
+        ReflectionTestUtils.setField(catalogCache, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(catalogCache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(catalogCache, "courierQuoteService", mock(CourierQuoteService.class));
+        ReflectionTestUtils.setField(catalogCache, "productSearchIndex", productSearchIndex);
+
+        product("p1", "Laptop", 5);
+        product("p2", "Headphones", 1);
+        product("p3", "Smartphone", 8);
+        catalogCache.products();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void stockUpdateThatStaysInStockIsIgnored() throws Exception {
+        CatalogCache.Entry before = catalogCache.products();
+        mongoTemplate.updateFirst(byId("p1"), new Update().inc("quantity", -1), Product.class);
+
+        catalogCache.onProductChange(stockUpdate("p1", 4));
+        catalogCache.refreshIfDirty();
+
+        assertThat(catalogCache.products()).isSameAs(before);
+    }
+
+    @Test
+    void stockUpdateCrossingZeroIsPatchedIn() throws Exception {
+        mongoTemplate.updateFirst(byId("p2"), new Update().inc("quantity", -1), Product.class);
+
+        catalogCache.onProductChange(stockUpdate("p2", 0));
+        catalogCache.refreshIfDirty();
+
+        assertThat(names(catalogCache.productsInStock())).containsExactly("Laptop", "Smartphone");
+        assertThat(catalogCache.products().json()).isEqualTo(objectMapper.writeValueAsBytes(allByName()));
+    }
+
+    @Test
+    void editedProductIsPatchedIntoCatalogAndSearchIndex() throws Exception {
+        mongoTemplate.updateFirst(byId("p3"), new Update().set("name", "Android Phone").set("quantity", 7),
+                Product.class);
+
+        catalogCache.productChanged("p3");
+        catalogCache.refreshIfDirty();
+
+        assertThat(names(catalogCache.products())).containsExactly("Android Phone", "Headphones", "Laptop");
+        assertThat(catalogCache.products().json()).isEqualTo(objectMapper.writeValueAsBytes(allByName()));
+        assertThat(productSearchIndex.search("android", 0, 10).getItems()).extracting(Product::getId)
+                .containsExactly("p3");
+        assertThat(productSearchIndex.search("smartphone", 0, 10).getItems()).isEmpty();
+    }
+
+    @Test
+    void pollQueuesOnlyEditedRemovedAndZeroCrossingProducts() throws Exception {
+        CatalogCache.Entry before = catalogCache.products();
+        mongoTemplate.updateFirst(byId("p1"), new Update().inc("quantity", -2), Product.class);
+
+        catalogCache.poll();
+        catalogCache.refreshIfDirty();
+        assertThat(catalogCache.products()).isSameAs(before);
+
+        mongoTemplate.updateFirst(byId("p1"), new Update().set("quantity", 0), Product.class);
+        mongoTemplate.remove(byId("p2"), Product.class);
+        catalogCache.poll();
+        catalogCache.refreshIfDirty();
+
+        assertThat(names(catalogCache.products())).containsExactly("Laptop", "Smartphone");
+        assertThat(names(catalogCache.productsInStock())).containsExactly("Smartphone");
+        assertThat(productSearchIndex.search("headphones", 0, 10).getItems()).isEmpty();
+    }
+
+    private void product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(BigDecimal.TEN);
+        product.setQuantity(quantity);
+        product.onCreate();
+        mongoTemplate.insert(product);
+    }
+
+    private List<Product> allByName() {
+        return mongoTemplate.find(new Query().with(Sort.by("name")), Product.class);
+    }
+
+    private List<String> names(CatalogCache.Entry entry) throws Exception {
+        return Arrays.stream(objectMapper.readValue(entry.json(), Product[].class)).map(Product::getName).toList();
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+
+    private static ChangeStreamDocument<Document> stockUpdate(String productId, int quantity) {
+        return new ChangeStreamDocument<>(OperationType.UPDATE, new BsonDocument(), null, null, null,
+                new BsonDocument("_id", new BsonString(productId)), null,
+                new UpdateDescription(List.of(), new BsonDocument("quantity", new BsonInt32(quantity))), null, null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.Courier;
+import com.pickupkart.payload.response.CourierQuote;
+import com.pickupkart.repository.CourierRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The booking form re-quotes on every keystroke of the distance: one courier, every courier from the
+// cached lists (typing within a band), and every courier with a fresh key each time (typing past the
+// last band, where each started km is a key of its own and the list is computed and cached).
+// mvn -Pbenchmark test -Dbenchmark=CourierQuoteBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CourierQuoteBenchmark {
+    @Param({"50"})
+    public int couriers;
+
+    private CourierQuoteService service;
+
+    private double[] typedDistances;
+
+    private int keystroke;
+
+    @Setup
+    public void setUp() {
+        List<Courier> table = new ArrayList<>(couriers);
+        for (int i = 0; i < couriers; i++) {
+            table.add(CourierQuoteServiceTest.courier("c" + i, "Courier " + i, (8 + i % 17) + "." + (i % 100), i % 10 == 0));
+        }
+        CourierRepository courierRepository = Mockito.mock(CourierRepository.class);
+        Mockito.when(courierRepository.findAll()).thenReturn(table);
+        service = new CourierQuoteService(new long[] {5, 10, 25, 50, 100, 250, 500}, 5, 4096, 5000, 1000);
+        ReflectionTestUtils.setField(service, "courierRepository", courierRepository);
+
+        // 501 to 4999 km, more distinct keys than the list cache holds
+        typedDistances = new double[4499];
+        for (int i = 0; i < typedDistances.length; i++) {
+            typedDistances[i] = 501 + i;
+        }
+        service.quoteAll(12.5, 2);
+    }
+
+    @Benchmark
+    public CourierQuote quoteOneCourier() {
+        return service.quote("c7", 137.4, 3);
+    }
+
+    @Benchmark
+    public List<CourierQuote> quoteAllWithinABand() {
+        return service.quoteAll(12.5, 2);
+    }
+
+    @Benchmark
+    public List<CourierQuote> quoteAllPerKeystroke() {
+        keystroke = keystroke + 1 < typedDistances.length ? keystroke + 1 : 0;
+        return service.quoteAll(typedDistances[keystroke], 2);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.Courier;
+import com.pickupkart.payload.response.CourierQuote;
+import com.pickupkart.repository.CourierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Quotes against a small fixed rate table: bands of 5, 10 and 25 km, 5% per extra item
+class CourierQuoteServiceTest {
+    private static final long[] BANDS = {25, 5, 10};
+
+    private final CourierRepository courierRepository = mock(CourierRepository.class);
+
+    private CourierQuoteService service;
+
+    @BeforeEach
+    void setUp() {
+        when(courierRepository.findAll()).thenReturn(List.of(
+                courier("swift", "Swift", "12.50", false),
+                courier("budget", "Budget", "9.9999", false),
+                courier("own", "Own courier", "1.00", true)));
+        service = service();
+    }
+
+    @Test
+    void chargesUpToTheCeilingOfTheBand() {
+        CourierRateTable table = CourierRateTable.of(List.of(), BANDS, 5);
+
+        assertThat(table.chargedKm(0.1)).isEqualTo(5);
+        assertThat(table.chargedKm(5.0)).isEqualTo(5);
+        assertThat(table.chargedKm(5.01)).isEqualTo(10);
+        assertThat(table.chargedKm(25.0)).isEqualTo(25);
+        // Beyond the last band: per started km
+        assertThat(table.chargedKm(25.2)).isEqualTo(26);
+        assertThat(table.chargedKm(40.0)).isEqualTo(40);
+
+        assertThat(service.quote("swift", 3, 1).getAmount()).isEqualByComparingTo("62.50");
+        assertThat(service.quote("swift", 25.2, 1).getAmount()).isEqualByComparingTo("325.00");
+    }
+
+    @Test
+    void eachExtraItemAddsAPercentageOfTheBasePrice() {
+        // 62.50 + 2 * 5% of 62.50
+        assertThat(service.quote("swift", 3, 3).getAmount()).isEqualByComparingTo("68.75");
+        // Scaled to 1/100 paise: 9.9999 * 10 km = 99.9990, + 1 * 5% = 4.99995, truncated to 4.9999
+        CourierRateTable table = CourierRateTable.of(List.of(courier("budget", "Budget", "9.9999", false)), BANDS, 5);
+        assertThat(table.quoteScaled(0, 7, 2)).isEqualTo(999_990 + 49_999);
+        assertThat(service.quote("budget", 7, 2).getAmount()).isEqualByComparingTo("105.00");
+    }
+
+    @Test
+    void roundsAmountsHalfUpToPaise() {
+        assertThat(CourierRateTable.toAmount(16_665)).isEqualByComparingTo("1.67");
+        assertThat(CourierRateTable.toAmount(16_649)).isEqualByComparingTo("1.66");
+        assertThat(CourierRateTable.toAmount(16_650)).isEqualByComparingTo("1.67");
+        assertThat(CourierRateTable.toAmount(0)).isEqualByComparingTo("0.00");
+        assertThat(CourierRateTable.toAmount(16_665).scale()).isEqualTo(2);
+    }
+
+    @Test
+    void cachesQuoteListsPerChargedKmAndQuantity() {
+        List<CourierQuote> threeKm = service.quoteAll(3, 2);
+
+        // Same band and quantity: the same list
+        assertThat(service.quoteAll(4.9, 2)).isSameAs(threeKm);
+        // Another band, or another quantity, is another key
+        assertThat(service.quoteAll(6, 2)).isNotSameAs(threeKm);
+        assertThat(service.quoteAll(3, 1)).isNotSameAs(threeKm);
+        // Beyond the last band each started km is a key of its own
+        assertThat(service.quoteAll(30, 1).get(0).getChargedKm()).isEqualTo(30);
+        assertThat(service.quoteAll(31, 1).get(0).getChargedKm()).isEqualTo(31);
+
+        // Custom couriers are left out; cheapest first
+        assertThat(threeKm).extracting(CourierQuote::getCourierId).containsExactly("budget", "swift");
+        assertThat(threeKm).allSatisfy(quote -> assertThat(quote.getQuantity()).isEqualTo(2));
+    }
+
+    @Test
+    void rebuildsTheTableAfterACourierChanges() {
+        assertThat(service.quote("swift", 3, 1).getAmount()).isEqualByComparingTo("62.50");
+        List<CourierQuote> before = service.quoteAll(3, 1);
+
+        when(courierRepository.findAll()).thenReturn(List.of(
+                courier("swift", "Swift", "8.00", false),
+                courier("budget", "Budget", "9.9999", false)));
+        CourierRateTableInvalidator invalidator = new CourierRateTableInvalidator();
+        ReflectionTestUtils.setField(invalidator, "courierQuoteService", service);
+        invalidator.onAfterSave(null);
+
+        assertThat(service.quote("swift", 3, 1).getAmount()).isEqualByComparingTo("40.00");
+        assertThat(service.quoteAll(3, 1)).isNotSameAs(before)
+                .extracting(CourierQuote::getCourierId).containsExactly("swift", "budget");
+        verify(courierRepository, times(2)).findAll();
+    }
+
+    @Test
+    void rejectsOutOfRangeRequests() {
+        assertThatThrownBy(() -> service.quote("swift", 0, 1)).hasMessageContaining("Distance");
+        assertThatThrownBy(() -> service.quote("swift", 5001, 1)).hasMessageContaining("Distance");
+        assertThatThrownBy(() -> service.quote("swift", 3, 0)).hasMessageContaining("Quantity");
+        assertThatThrownBy(() -> service.quote("unknown", 3, 1)).hasMessageContaining("not found");
+    }
+
+    private CourierQuoteService service() {
+        CourierQuoteService service = new CourierQuoteService(BANDS, 5, 16, 5000, 1000);
+        ReflectionTestUtils.setField(service, "courierRepository", courierRepository);
+        return service;
+    }
+
+    static Courier courier(String id, String name, String pricePerKm, boolean custom) {
+        Courier courier = new Courier();
+        courier.setId(id);
+        courier.setName(name);
+        courier.setPricePerKm(new BigDecimal(pricePerKm));
+        courier.setIsCustom(custom);
+        return courier;
+    }
+}
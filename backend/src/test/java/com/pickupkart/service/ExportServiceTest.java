@@ -0,0 +1,59 @@
+package com.pickupkart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pickupkart.support.InMemoryMongo;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportServiceTest {
+    private InMemoryMongo mongo;
+
+    private ObjectMapper objectMapper;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        exportService = new ExportService(2);
+        ReflectionTestUtils.setField(exportService, "mongoTemplate", mongo.mongoTemplate());
+        ReflectionTestUtils.setField(exportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(exportService, "batchSize", 2);
+        ReflectionTestUtils.setField(exportService, "flushEvery", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerLineWithNothingBetween() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mongo.mongoTemplate().getCollection("payments").insertOne(new Document("_id", "payment-" + i)
+                    .append("status", "COMPLETED")
+                    .append("paymentAmount", i * 100));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportPayments(ExportService.Format.NDJSON, null, null, null, false, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(3);
+        for (String line : lines) {
+            assertThat(line).startsWith("{").endsWith("}");
+            assertThat(objectMapper.readTree(line).get("status").asText()).isEqualTo("COMPLETED");
+        }
+    }
+}
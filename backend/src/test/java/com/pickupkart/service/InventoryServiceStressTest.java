@@ -0,0 +1,218 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.InventoryLease;
+import com.pickupkart.model.InventoryReservation;
+import com.pickupkart.model.Product;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Many threads reserve against a fixed stock at once; the units handed out may never exceed it,
+// and every unit is either still in stock or held by exactly one reservation
+class InventoryServiceStressTest {
+    private static final int STOCK = 1_000;
+
+    private static final int THREADS = 32;
+
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    private static final AtomicInteger orderIds = new AtomicInteger();
+
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+        mongoTemplate.indexOps(InventoryReservation.class).ensureIndex(new Index("orderId", Sort.Direction.ASC).unique());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        String productId = product(STOCK);
+        InventoryService inventoryService = inventoryService(hotFront(""));
+
+        int reserved = hammer(inventoryService, productId);
+
+        assertThat(reserved).isLessThanOrEqualTo(STOCK);
+        assertThat(reserved + stock(productId)).isEqualTo(STOCK);
+        assertThat(reservedUnits(productId)).isEqualTo(reserved);
+    }
+
+    @Test
+    void concurrentBatchesForTheSameOrdersConserveStock() throws Exception {
+        // Two ingestion attempts of the same batch at once, e.g. a retry while the first is still running
+        String productId = product(STOCK);
+        InventoryService inventoryService = inventoryService(hotFront(""));
+        List<String> batchOrderIds = List.of(nextOrderId(), nextOrderId(), nextOrderId());
+
+        for (int round = 0; round < 20; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    List<InventoryReservation> requests = new ArrayList<>();
+                    for (String orderId : batchOrderIds) {
+                        InventoryReservation request = new InventoryReservation();
+                        request.setOrderId(orderId);
+                        request.setProductId(productId);
+                        request.setQuantity(2);
+                        requests.add(request);
+                    }
+                    return inventoryService.reserveAll(requests);
+                }));
+            }
+            start.countDown();
+            for (Future<?> attempt : attempts) {
+                attempt.get();
+            }
+            pool.shutdown();
+
+            assertThat(reservedUnits(productId)).isEqualTo(6);
+            assertThat(stock(productId)).isEqualTo(STOCK - 6);
+        }
+    }
+
+    @Test
+    void concurrentReservationsOnTwoHotFrontsNeverOversell() throws Exception {
+        String productId = product(STOCK);
+        HotInventoryFront nodeA = hotFront(productId);
+        HotInventoryFront nodeB = hotFront(productId);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<Integer> a = pool.submit(() -> hammer(inventoryService(nodeA), productId));
+        Future<Integer> b = pool.submit(() -> hammer(inventoryService(nodeB), productId));
+        int reserved = a.get() + b.get();
+        pool.shutdown();
+
+        assertThat(reserved).isLessThanOrEqualTo(STOCK);
+        assertThat(reservedUnits(productId)).isEqualTo(reserved);
+
+        // Units still leased to either node come back on shutdown
+        nodeA.returnAllLeases();
+        nodeB.returnAllLeases();
+        assertThat(reserved + stock(productId)).isEqualTo(STOCK);
+        assertThat(mongoTemplate.count(new Query(), InventoryLease.class)).isZero();
+    }
+
+    @Test
+    void leaseOfACrashedNodeIsReconciled() {
+        String productId = product(STOCK);
+        HotInventoryFront crashed = hotFront(productId);
+        InventoryService crashedService = inventoryService(crashed);
+        int reserved = 0;
+        for (int i = 0; i < 7; i++) {
+            if (crashedService.reserve(nextOrderId(), productId, 3)) {
+                reserved += 3;
+            }
+        }
+        // The node leased whole chunks; some of those units were never sold
+        assertThat(stock(productId) + reserved).isLessThan(STOCK);
+
+        // It dies without returning them: its heartbeat stops
+        mongoTemplate.updateMulti(new Query(), new Update().set("heartbeatAt", LocalDateTime.now().minusHours(1)),
+                InventoryLease.class);
+        hotFront(productId).reconcileAbandonedLeases();
+
+        assertThat(stock(productId) + reserved).isEqualTo(STOCK);
+        assertThat(reservedUnits(productId)).isEqualTo(reserved);
+        assertThat(mongoTemplate.count(new Query(), InventoryLease.class)).isZero();
+    }
+
+    private int hammer(InventoryService inventoryService, String productId) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Callable<Integer> worker = () -> {
+                start.await();
+                int units = 0;
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+                    if (inventoryService.reserve(nextOrderId(), productId, quantity)) {
+                        units += quantity;
+                    }
+                }
+                return units;
+            };
+            results.add(pool.submit(worker));
+        }
+        start.countDown();
+        int reserved = 0;
+        for (Future<Integer> result : results) {
+            reserved += result.get();
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        return reserved;
+    }
+
+    private String product(int quantity) {
+        Product product = new Product();
+        product.setName("Hot product");
+        product.setQuantity(quantity);
+        return mongoTemplate.insert(product).getId();
+    }
+
+    private int stock(String productId) {
+        return mongoTemplate.findById(productId, Product.class).getQuantity();
+    }
+
+    private int reservedUnits(String productId) {
+        return mongoTemplate.find(Query.query(Criteria.where("productId").is(productId)), InventoryReservation.class)
+                .stream()
+                .mapToInt(InventoryReservation::getQuantity)
+                .sum();
+    }
+
+    private HotInventoryFront hotFront(String hotSkus) {
+        HotInventoryFront front = new HotInventoryFront(hotSkus, 8, 20, 30, 120);
+        ReflectionTestUtils.setField(front, "mongoTemplate", mongoTemplate);
+        return front;
+    }
+
+    private InventoryService inventoryService(HotInventoryFront front) {
+        InventoryService inventoryService = new InventoryService();
+        ReflectionTestUtils.setField(inventoryService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(inventoryService, "hotInventoryFront", front);
+        ReflectionTestUtils.setField(inventoryService, "orderEventOutbox", mock(OrderEventOutbox.class));
+        ReflectionTestUtils.setField(inventoryService, "reservationTtlMinutes", 30L);
+        return inventoryService;
+    }
+
+    private static String nextOrderId() {
+        return "order-" + orderIds.incrementAndGet();
+    }
+}
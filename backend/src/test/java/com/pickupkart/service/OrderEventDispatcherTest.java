@@ -0,0 +1,156 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+import com.pickupkart.support.InMemoryMongo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventDispatcherTest {
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    private final List<List<OutboxEvent>> deliveries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+        for (int i = 0; i < 6; i++) {
+            OutboxEvent event = new OutboxEvent();
+            event.setOrderId("order-" + i);
+            event.setType(OutboxEvent.EventType.ORDER_PLACED);
+            event.setState(OutboxEvent.State.PENDING);
+            event.onCreate();
+            mongoTemplate.insert(event);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void dispatchesEveryBatchWhileTheLeaseIsHeld() {
+        dispatcher(events -> deliveries.add(events)).dispatch();
+
+        assertThat(deliveries).hasSize(3);
+        assertThat(count(OutboxEvent.State.DISPATCHED)).isEqualTo(6);
+    }
+
+    @Test
+    void stopsBeforeTheNextBatchOnceTheLeaseIsTakenOver() {
+        // Another instance takes the lease over while the first batch is delivered, e.g. after a long pause
+        dispatcher(events -> {
+            deliveries.add(events);
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is("order-event-dispatcher")),
+                    new Update().set("owner", "other").set("expiresAt", LocalDateTime.now().plusMinutes(1)), "locks");
+        }).dispatch();
+
+        assertThat(deliveries).hasSize(1);
+        assertThat(count(OutboxEvent.State.DISPATCHED)).isEqualTo(2);
+        assertThat(count(OutboxEvent.State.PENDING)).isEqualTo(4);
+    }
+
+    @Test
+    void deliversAnOrdersEventsInSequenceWhateverTheirIds() {
+        mongoTemplate.remove(new Query(), OutboxEvent.class);
+        // Written on a node whose clock is a minute behind: the later event has the smaller id
+        insertSequenced("order-a", 2L, LocalDateTime.now().minusMinutes(1));
+        insertSequenced("order-a", 1L, LocalDateTime.now());
+        counter("order-a", 2L);
+
+        dispatcher(events -> deliveries.add(events)).dispatch();
+
+        assertThat(deliveries.stream().flatMap(List::stream).map(OutboxEvent::getSequence)).containsExactly(1L, 2L);
+        assertThat(dispatched("order-a")).isEqualTo(2L);
+    }
+
+    @Test
+    void holdsLaterEventsUntilTheMissingOneArrives() {
+        mongoTemplate.remove(new Query(), OutboxEvent.class);
+        counter("order-a", 3L);
+        insertSequenced("order-a", 1L, LocalDateTime.now());
+        insertSequenced("order-a", 3L, LocalDateTime.now());
+        OrderEventDispatcher dispatcher = dispatcher(events -> deliveries.add(events));
+        ReflectionTestUtils.setField(dispatcher, "retryBackoffMillis", 0L);
+
+        dispatcher.dispatch();
+        assertThat(deliveries.stream().flatMap(List::stream).map(OutboxEvent::getSequence)).containsExactly(1L);
+
+        // Number 2 commits late, with a newer id than 3
+        insertSequenced("order-a", 2L, LocalDateTime.now().plusSeconds(1));
+        dispatcher.dispatch();
+        assertThat(deliveries.stream().flatMap(List::stream).map(OutboxEvent::getSequence)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void skipsAGapThatOutlastsTheSequenceWait() {
+        mongoTemplate.remove(new Query(), OutboxEvent.class);
+        counter("order-a", 3L);
+        insertSequenced("order-a", 1L, LocalDateTime.now());
+        OutboxEvent third = insertSequenced("order-a", 3L, LocalDateTime.now());
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(third.getId())),
+                new Update().set("createdAt", LocalDateTime.now().minusMinutes(1)), OutboxEvent.class);
+
+        dispatcher(events -> deliveries.add(events)).dispatch();
+
+        assertThat(deliveries.stream().flatMap(List::stream).map(OutboxEvent::getSequence)).containsExactly(1L, 3L);
+        assertThat(dispatched("order-a")).isEqualTo(3L);
+    }
+
+    private OutboxEvent insertSequenced(String orderId, long sequence, LocalDateTime idTime) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(new ObjectId(Date.from(idTime.atZone(ZoneId.systemDefault()).toInstant())).toHexString());
+        event.setOrderId(orderId);
+        event.setType(OutboxEvent.EventType.ORDER_STATUS_CHANGED);
+        event.setSequence(sequence);
+        event.setState(OutboxEvent.State.PENDING);
+        event.onCreate();
+        return mongoTemplate.insert(event);
+    }
+
+    private void counter(String orderId, long next) {
+        mongoTemplate.insert(new Document("_id", orderId).append("next", next).append("dispatched", 0L),
+                OrderEventOutbox.SEQUENCES);
+    }
+
+    private long dispatched(String orderId) {
+        Document counter = mongoTemplate.findById(orderId, Document.class, OrderEventOutbox.SEQUENCES);
+        return counter.get("dispatched", Number.class).longValue();
+    }
+
+    private OrderEventDispatcher dispatcher(OrderEventSink sink) {
+        OrderEventDispatcher dispatcher = new OrderEventDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(dispatcher, "sinks", List.of(sink));
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 10);
+        ReflectionTestUtils.setField(dispatcher, "retryBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMillis", 300_000L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "sequenceWaitMillis", 10_000L);
+        return dispatcher;
+    }
+
+    private long count(OutboxEvent.State state) {
+        return mongoTemplate.count(new Query(Criteria.where("state").is(state)), OutboxEvent.class);
+    }
+}
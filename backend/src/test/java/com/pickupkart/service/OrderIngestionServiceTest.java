@@ -0,0 +1,186 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.InventoryReservation;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Product;
+import com.pickupkart.model.User;
+import com.pickupkart.payload.response.IngestLineResult;
+import com.pickupkart.payload.response.IngestReport;
+import com.pickupkart.repository.UserRepository;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A batch attempt that dies between the bulk insert and the reservation leaves a PENDING order without
+// stock; the retry has to finish it, and an attempt that is never retried has its order cancelled
+class OrderIngestionServiceTest {
+    private static final String LINE = "{\"idempotencyKey\":\"k1\",\"productId\":\"p1\",\"courierId\":\"c1\",\"quantity\":2}";
+
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    private InventoryService inventoryService;
+
+    private OrderEventOutbox orderEventOutbox;
+
+    private OrderIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+        mongoTemplate.indexOps(Order.class).ensureIndex(new Index("idempotencyKey", Sort.Direction.ASC).unique().sparse());
+        mongoTemplate.indexOps(InventoryReservation.class).ensureIndex(new Index("orderId", Sort.Direction.ASC).unique());
+
+        Product product = new Product();
+        product.setId("p1");
+        product.setName("Laptop");
+        product.setPrice(BigDecimal.TEN);
+        product.setQuantity(10);
+        mongoTemplate.insert(product);
+
+        User partner = new User();
+        partner.setId("partner");
+        partner.setLoginName("partner");
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById("partner")).thenReturn(Optional.of(partner));
+
+        CatalogCache catalogCache = mock(CatalogCache.class);
+        when(catalogCache.product("p1")).thenReturn(Optional.of(product));
+        CourierQuoteService courierQuoteService = mock(CourierQuoteService.class);
+        when(courierQuoteService.snapshot("c1")).thenReturn(Optional.of(new Order.CourierSnapshot("c1", "Express", BigDecimal.ONE)));
+        when(courierQuoteService.deliveryCost(any(), anyDouble(), anyInt())).thenReturn(BigDecimal.ONE);
+
+        HotInventoryFront hotFront = new HotInventoryFront("", 8, 20, 30, 120);
+        ReflectionTestUtils.setField(hotFront, "mongoTemplate", mongoTemplate);
+        inventoryService = spy(new InventoryService());
+        ReflectionTestUtils.setField(inventoryService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(inventoryService, "hotInventoryFront", hotFront);
+        ReflectionTestUtils.setField(inventoryService, "orderEventOutbox", mock(OrderEventOutbox.class));
+        ReflectionTestUtils.setField(inventoryService, "reservationTtlMinutes", 30L);
+        orderEventOutbox = mock(OrderEventOutbox.class);
+
+        ingestionService = new OrderIngestionService();
+        ReflectionTestUtils.setField(ingestionService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(ingestionService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(ingestionService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(ingestionService, "catalogCache", catalogCache);
+        ReflectionTestUtils.setField(ingestionService, "courierQuoteService", courierQuoteService);
+        ReflectionTestUtils.setField(ingestionService, "inventoryService", inventoryService);
+        ReflectionTestUtils.setField(ingestionService, "orderEventOutbox", orderEventOutbox);
+        ReflectionTestUtils.setField(ingestionService, "batchSize", 1000);
+        ReflectionTestUtils.setField(ingestionService, "maxLines", 100_000);
+        ReflectionTestUtils.setField(ingestionService, "reservationTtlMinutes", 30L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void retryReservesAnOrderWhoseFirstAttemptDiedBeforeReserving() throws Exception {
+        String orderId = crashAfterInsert();
+
+        IngestReport retry = ingest();
+
+        assertThat(retry.getResults()).extracting(IngestLineResult::getOutcome, IngestLineResult::getOrderId)
+                .containsExactly(tuple(IngestLineResult.Outcome.CREATED, orderId));
+        assertThat(reservationCount(orderId)).isEqualTo(1);
+        assertThat(stock()).isEqualTo(8);
+        verify(orderEventOutbox).ordersPlaced(anyList());
+    }
+
+    @Test
+    void retryOfACompletedLineIsADuplicate() throws Exception {
+        IngestReport first = ingest();
+        String orderId = first.getResults().get(0).getOrderId();
+
+        IngestReport retry = ingest();
+
+        assertThat(retry.getResults()).extracting(IngestLineResult::getOutcome, IngestLineResult::getOrderId)
+                .containsExactly(tuple(IngestLineResult.Outcome.DUPLICATE, orderId));
+        assertThat(stock()).isEqualTo(8);
+        verify(orderEventOutbox, times(1)).ordersPlaced(anyList());
+    }
+
+    @Test
+    void sweeperCancelsOldOrdersThatWereNeverReserved() throws Exception {
+        String orphan = crashAfterInsert();
+        String reserved = mongoTemplate.insert(order("k2")).getId();
+        inventoryService.reserve(reserved, "p1", 1);
+        mongoTemplate.updateMulti(new Query(), new Update().set("orderDate", LocalDateTime.now().minusHours(1)), Order.class);
+
+        ingestionService.cancelOrphanedOrders();
+
+        assertThat(status(orphan)).isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(status(reserved)).isEqualTo(Order.OrderStatus.PENDING);
+    }
+
+    // The first attempt stores the order and then dies before its reservation is written
+    private String crashAfterInsert() {
+        doThrow(new IllegalStateException("node stopped")).doCallRealMethod().when(inventoryService).reserveAll(anyList());
+        assertThatThrownBy(this::ingest).hasMessage("node stopped");
+        Order order = mongoTemplate.findOne(new Query(Criteria.where("idempotencyKey").is("partner:k1")), Order.class);
+        assertThat(order).isNotNull();
+        assertThat(reservationCount(order.getId())).isZero();
+        return order.getId();
+    }
+
+    private IngestReport ingest() throws Exception {
+        return ingestionService.ingest("partner", new ByteArrayInputStream(LINE.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Order order(String key) {
+        Order order = new Order();
+        order.setIdempotencyKey("partner:" + key);
+        order.setProductId("p1");
+        order.setQuantity(1);
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.onCreate();
+        return order;
+    }
+
+    private long reservationCount(String orderId) {
+        return mongoTemplate.count(new Query(Criteria.where("orderId").is(orderId)), InventoryReservation.class);
+    }
+
+    private int stock() {
+        return mongoTemplate.findById("p1", Product.class).getQuantity();
+    }
+
+    private Order.OrderStatus status(String orderId) {
+        return mongoTemplate.findById(orderId, Order.class).getStatus();
+    }
+}
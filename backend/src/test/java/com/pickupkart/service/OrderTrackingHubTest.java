@@ -0,0 +1,159 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.OutboxEvent;
+import com.pickupkart.support.InMemoryMongo;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderTrackingHubTest {
+    private final CountDownLatch unstall = new CountDownLatch(1);
+
+    private final CountDownLatch delivered = new CountDownLatch(1);
+
+    private final CountDownLatch stalling = new CountDownLatch(1);
+
+    private final Queue<String> sent = new ConcurrentLinkedQueue<>();
+
+    private OrderTrackingHub hub;
+
+    private InMemoryMongo mongo;
+
+    @AfterEach
+    void tearDown() {
+        unstall.countDown();
+        hub.shutdown();
+        if (mongo != null) {
+            mongo.close();
+        }
+    }
+
+    @Test
+    void aStalledClientIsEvictedWithoutHoldingUpTheOthers() throws Exception {
+        // One sender thread: before send deadlines, the stalled write would have blocked every subscriber
+        hub = hub(1, 4);
+        hub.subscribe("stalled", null);
+        hub.subscribe("healthy", null);
+
+        hub.publish(event("stalled"));
+        hub.publish(event("healthy"));
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aSubscriberIsEvictedWhenEveryWriterIsTaken() throws Exception {
+        hub = hub(2, 1);
+        ReflectionTestUtils.setField(hub, "sendTimeoutMillis", 30_000L);
+        hub.subscribe("stalled", null);
+        hub.subscribe("healthy", null);
+
+        hub.publish(event("stalled"));
+        assertThat(stalling.await(5, TimeUnit.SECONDS)).isTrue();
+        hub.publish(event("healthy"));
+
+        // The healthy subscriber found no free writer and was disconnected instead of queueing behind the stall
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hub.subscriberCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+        assertThat(delivered.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aClientThatMissedMoreThanTheReplayLimitIsToldToResync() throws Exception {
+        mongo = new InMemoryMongo();
+        hub = hub(1, 4);
+        ReflectionTestUtils.setField(hub, "mongoTemplate", mongo.mongoTemplate());
+        ReflectionTestUtils.setField(hub, "replayLimit", 3);
+        String lastSeen = new ObjectId().toHexString();
+        List<OutboxEvent> missed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            OutboxEvent event = event("resyncing");
+            event.setId(new ObjectId().toHexString());
+            missed.add(mongo.mongoTemplate().insert(event));
+        }
+        String newest = missed.get(missed.size() - 1).getId();
+
+        hub.subscribe("resyncing", lastSeen);
+        // A live copy of a missed event is covered by the resync; a newer one is delivered
+        hub.publish(missed.get(4));
+        OutboxEvent next = event("resyncing");
+        next.setId(new ObjectId().toHexString());
+        hub.publish(next);
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<String> events = new ArrayList<>(sent);
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).contains("event:" + OrderTrackingHub.RESYNC_EVENT).contains("id:" + newest);
+        assertThat(events.get(1)).contains("id:" + next.getId());
+    }
+
+    private OrderTrackingHub hub(int senderThreads, int writerThreads) {
+        OrderTrackingHub hub = new OrderTrackingHub(senderThreads, writerThreads) {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                return new TestEmitter(timeout);
+            }
+        };
+        ReflectionTestUtils.setField(hub, "bufferSize", 64);
+        ReflectionTestUtils.setField(hub, "maxSubscribers", 100);
+        ReflectionTestUtils.setField(hub, "maxPerCustomer", 5);
+        ReflectionTestUtils.setField(hub, "replayLimit", 100);
+        ReflectionTestUtils.setField(hub, "timeoutMillis", 60_000L);
+        ReflectionTestUtils.setField(hub, "sendTimeoutMillis", 200L);
+        return hub;
+    }
+
+    private static OutboxEvent event(String customerId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(customerId + "-event");
+        event.setOrderId(customerId + "-order");
+        event.setCustomerId(customerId);
+        event.setType(OutboxEvent.EventType.ORDER_STATUS_CHANGED);
+        event.setStatus("SHIPPED");
+        return event;
+    }
+
+    // Stands in for a client connection: the "stalled" customer's writes block as on a full socket buffer
+    private class TestEmitter extends SseEmitter {
+        TestEmitter(long timeout) {
+            super(timeout);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String event = builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining());
+            if (event.contains("id:stalled-event")) {
+                stalling.countDown();
+                try {
+                    unstall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            sent.add(event);
+            if (event.contains("id:healthy-event") || sent.size() == 2) {
+                delivered.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.Order;
+import com.pickupkart.payload.response.BulkOrderTransitionResponse;
+import com.pickupkart.payload.response.OrderTransitionResult;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class OrderTransitionServiceTest {
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void bulkTransitionReportsEachOrderFromItsOwnWrite() {
+        order("pending", Order.OrderStatus.PENDING);
+        order("confirmed", Order.OrderStatus.CONFIRMED);
+        order("shipped", Order.OrderStatus.SHIPPED);
+        OrderEventOutbox outbox = mock(OrderEventOutbox.class);
+
+        BulkOrderTransitionResponse response = service(outbox).transitionAll(
+                List.of("pending", "confirmed", "shipped", "missing"),
+                Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+
+        assertThat(outcomes(response)).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "pending", OrderTransitionResult.Outcome.APPLIED,
+                "confirmed", OrderTransitionResult.Outcome.ALREADY_IN_STATE,
+                "shipped", OrderTransitionResult.Outcome.CONFLICT,
+                "missing", OrderTransitionResult.Outcome.NOT_FOUND));
+        verify(outbox).orderStatusChanged(List.of("pending"), Order.OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void bulkTransitionWithNothingToMoveEmitsNoEvents() {
+        order("confirmed", Order.OrderStatus.CONFIRMED);
+        OrderEventOutbox outbox = mock(OrderEventOutbox.class);
+
+        BulkOrderTransitionResponse response = service(outbox).transitionAll(List.of("confirmed"),
+                Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+
+        assertThat(outcomes(response)).containsEntry("confirmed", OrderTransitionResult.Outcome.ALREADY_IN_STATE);
+        verify(outbox, never()).orderStatusChanged(any(Collection.class), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void concurrentBulkTransitionsApplyEachOrderOnce() throws Exception {
+        List<String> ids = IntStream.range(0, 200).mapToObj(i -> "order-" + i).toList();
+        ids.forEach(id -> order(id, Order.OrderStatus.PENDING));
+        OrderEventOutbox outboxA = mock(OrderEventOutbox.class);
+        OrderEventOutbox outboxB = mock(OrderEventOutbox.class);
+        OrderTransitionService a = service(outboxA);
+        OrderTransitionService b = service(outboxB);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<BulkOrderTransitionResponse> first = pool.submit(() -> {
+            start.await();
+            return a.transitionAll(ids, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+        });
+        Future<BulkOrderTransitionResponse> second = pool.submit(() -> {
+            start.await();
+            return b.transitionAll(ids, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED);
+        });
+        start.countDown();
+        Map<String, OrderTransitionResult.Outcome> firstOutcomes = outcomes(first.get());
+        Map<String, OrderTransitionResult.Outcome> secondOutcomes = outcomes(second.get());
+        pool.shutdown();
+
+        for (String id : ids) {
+            assertThat(List.of(firstOutcomes.get(id), secondOutcomes.get(id))).as(id)
+                    .containsExactlyInAnyOrder(OrderTransitionResult.Outcome.APPLIED,
+                            OrderTransitionResult.Outcome.ALREADY_IN_STATE);
+        }
+        List<String> emitted = new ArrayList<>();
+        for (OrderEventOutbox outbox : List.of(outboxA, outboxB)) {
+            ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(outbox, atMost(1)).orderStatusChanged(captor.capture(), eq(Order.OrderStatus.CONFIRMED));
+            captor.getAllValues().forEach(emitted::addAll);
+        }
+        assertThat(emitted).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    private OrderTransitionService service(OrderEventOutbox outbox) {
+        OrderTransitionService service = new OrderTransitionService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "inventoryService", mock(InventoryService.class));
+        ReflectionTestUtils.setField(service, "receiptService", mock(ReceiptService.class));
+        ReflectionTestUtils.setField(service, "orderEventOutbox", outbox);
+        ReflectionTestUtils.setField(service, "transactionRunner", TransactionRunnerTest.standalone());
+        ReflectionTestUtils.setField(service, "maxBatchSize", 10_000);
+        return service;
+    }
+
+    private void order(String id, Order.OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.onCreate();
+        mongoTemplate.insert(order);
+    }
+
+    private static Map<String, OrderTransitionResult.Outcome> outcomes(BulkOrderTransitionResponse response) {
+        return response.getResults().stream()
+                .collect(Collectors.toMap(OrderTransitionResult::getOrderId, OrderTransitionResult::getOutcome));
+    }
+}
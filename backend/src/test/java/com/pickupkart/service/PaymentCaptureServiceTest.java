@@ -0,0 +1,110 @@
+package com.pickupkart.service;
+
+import com.pickupkart.config.IndexManager;
+import com.pickupkart.model.Order;
+import com.pickupkart.model.Payment;
+import com.pickupkart.repository.OrderRepository;
+import com.pickupkart.support.InMemoryMongo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentCaptureServiceTest {
+    private static final int THREADS = 16;
+
+    private InMemoryMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+
+    private OrderEventOutbox orderEventOutbox;
+
+    private PaymentCaptureService paymentCaptureService;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        mongoTemplate = mongo.mongoTemplate();
+        IndexManager indexManager = new IndexManager();
+        ReflectionTestUtils.setField(indexManager, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(indexManager, "mappingContext",
+                (MongoMappingContext) mongoTemplate.getConverter().getMappingContext());
+        indexManager.ensureIndexes();
+
+        Order order = new Order();
+        order.setId("o1");
+        order.setCustomerId("alice");
+        order.setAmount(BigDecimal.TEN);
+        order.setStatus(Order.OrderStatus.PENDING);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findById("o1")).thenReturn(Optional.of(order));
+        orderEventOutbox = mock(OrderEventOutbox.class);
+
+        paymentCaptureService = new PaymentCaptureService();
+        ReflectionTestUtils.setField(paymentCaptureService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(paymentCaptureService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(paymentCaptureService, "transactionIdGenerator", new TransactionIdGenerator(-1));
+        ReflectionTestUtils.setField(paymentCaptureService, "orderEventOutbox", orderEventOutbox);
+        ReflectionTestUtils.setField(paymentCaptureService, "transactionRunner", TransactionRunnerTest.standalone());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void concurrentInitiatesShareOnePendingPayment() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Payment>> calls = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            calls.add(pool.submit(() -> {
+                start.await();
+                return paymentCaptureService.initiate("alice", false, "o1", Payment.PaymentMode.CARD);
+            }));
+        }
+        start.countDown();
+        List<String> transactionIds = new ArrayList<>();
+        for (Future<Payment> call : calls) {
+            transactionIds.add(call.get().getTransactionId());
+        }
+        pool.shutdown();
+
+        assertThat(transactionIds).containsOnly(transactionIds.get(0));
+        assertThat(mongoTemplate.count(new Query(Criteria.where("orderId").is("o1")), Payment.class)).isEqualTo(1);
+        verify(orderEventOutbox, times(1)).paymentCreated(any());
+    }
+
+    @Test
+    void initiateStoresTheWholePayment() {
+        Payment payment = paymentCaptureService.initiate("alice", false, "o1", Payment.PaymentMode.CARD);
+
+        Payment stored = mongoTemplate.findById(payment.getId(), Payment.class);
+        assertThat(stored.getCustomerId()).isEqualTo("alice");
+        assertThat(stored.getPaymentMode()).isEqualTo(Payment.PaymentMode.CARD);
+        assertThat(stored.getPaymentAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(stored.getStatus()).isEqualTo(Payment.PaymentStatus.PENDING);
+        assertThat(stored.getTransactionId()).isEqualTo(payment.getTransactionId());
+    }
+}
@@ -0,0 +1,98 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.Product;
+import com.pickupkart.payload.response.ProductSearchPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Search over 100k synthetic products: selective, multi-word, prefix, infix and broad queries against the index,
+// and the case-insensitive contains scan the removed $regex search did per document (in memory here,
+// so it is a lower bound for the database version).
+// mvn -Pbenchmark test -Dbenchmark=ProductSearchIndexBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+    private static final String[] BRANDS = {"Acme", "Globex", "Initech", "Umbrella", "Hooli", "Vandelay", "Stark", "Wayne"};
+
+    private static final String[] KINDS = {"laptop", "phone", "headphones", "monitor", "keyboard", "mouse", "charger",
+            "speaker", "camera", "tablet", "router", "watch", "backpack", "lamp", "printer", "drive"};
+
+    private static final String[] TRAITS = {"wireless", "portable", "gaming", "compact", "ultra", "pro", "mini",
+            "rugged", "silent", "smart", "foldable", "waterproof"};
+
+    @Param({"100000"})
+    public int products;
+
+    private ProductSearchIndex index;
+
+    private List<Product> catalog;
+
+    private String selectiveQuery;
+
+    private Pattern multiWordPattern;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = BRANDS[random.nextInt(BRANDS.length)] + " " + TRAITS[random.nextInt(TRAITS.length)] + " "
+                    + KINDS[random.nextInt(KINDS.length)] + " " + Integer.toString(i, 36).toUpperCase();
+            String description = "A " + TRAITS[random.nextInt(TRAITS.length)] + " "
+                    + KINDS[random.nextInt(KINDS.length)] + " for everyday use, model " + (1000 + random.nextInt(9000));
+            catalog.add(ProductSearchIndexTest.product("p" + i, name, description));
+        }
+        index = new ProductSearchIndex(256);
+        index.sync(catalog);
+        // One product's model code plus its brand
+        String name = catalog.get(products / 2).getName();
+        selectiveQuery = name.substring(0, name.indexOf(' ')) + " " + name.substring(name.lastIndexOf(' ') + 1);
+        multiWordPattern = Pattern.compile(Pattern.quote("vandelay rugged camera"), Pattern.CASE_INSENSITIVE);
+    }
+
+    @Benchmark
+    public ProductSearchPage selective() {
+        return index.search(selectiveQuery, 0, 20);
+    }
+
+    // Each word matches thousands of products; their intersection is a few hundred
+    @Benchmark
+    public ProductSearchPage multiWord() {
+        return index.search("vandelay rugged camera", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchPage prefix() {
+        return index.search("waterpr", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchPage infix() {
+        return index.search("phones", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchPage broad() {
+        return index.search("wireless", 0, 20);
+    }
+
+    @Benchmark
+    public List<Product> regexScan() {
+        List<Product> hits = new ArrayList<>();
+        for (Product product : catalog) {
+            if (multiWordPattern.matcher(product.getName()).find()) {
+                hits.add(product);
+            }
+        }
+        return hits;
+    }
+}
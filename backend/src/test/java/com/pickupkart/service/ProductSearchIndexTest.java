@@ -0,0 +1,56 @@
+package com.pickupkart.service;
+
+import com.pickupkart.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+    @Test
+    void tokenizeIgnoresTheDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertThat(ProductSearchIndex.tokenize("WIRELESS Title-IX")).containsExactly("wireless", "title", "ix");
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void searchRanksExactThenPrefixThenInfixMatches() {
+        ProductSearchIndex index = new ProductSearchIndex(256);
+        index.sync(List.of(
+                product("1", "Phone stand", null),
+                product("2", "Phones bundle", null),
+                product("3", "Headphones", null),
+                product("4", "Laptop", null)));
+
+        assertThat(index.search("phone", 0, 10).getItems()).extracting(Product::getId)
+                .containsExactly("1", "2", "3");
+        assertThat(index.search("phone stand", 0, 10).getItems()).extracting(Product::getId)
+                .containsExactly("1");
+    }
+
+    @Test
+    void syncDropsRemovedProductsAndReindexesChangedText() {
+        ProductSearchIndex index = new ProductSearchIndex(256);
+        index.sync(List.of(product("1", "Laptop", null), product("2", "Smartphone", null)));
+
+        index.sync(List.of(product("1", "Gaming laptop", null)));
+
+        assertThat(index.search("smartphone", 0, 10).getTotal()).isZero();
+        assertThat(index.search("gaming", 0, 10).getItems()).extracting(Product::getId).containsExactly("1");
+    }
+
+    static Product product(String id, String name, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        return product;
+    }
+}
@@ -0,0 +1,104 @@
+package com.pickupkart.service;
+
+import com.mongodb.MongoException;
+import com.pickupkart.config.MongoTopology;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TransactionRunnerTest {
+    @Test
+    void standaloneServersRunTheWorkDirectly() {
+        MongoTransactionManager transactionManager = mock(MongoTransactionManager.class);
+        TransactionRunner runner = runner(transactionManager, false);
+
+        assertThat(runner.execute(() -> "done")).isEqualTo("done");
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void transientErrorsRunTheWorkAgainInANewTransaction() {
+        MongoTransactionManager transactionManager = transactionManager();
+        TransactionRunner runner = runner(transactionManager, true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = runner.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw transientError();
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(2);
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void otherErrorsAndExhaustedAttemptsAreThrown() {
+        TransactionRunner runner = runner(transactionManager(), true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> runner.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(attempts).hasValue(1);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> runner.execute(() -> {
+            attempts.incrementAndGet();
+            throw transientError();
+        })).isInstanceOf(MongoException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void afterCommitRunsAtOnceOutsideATransaction() {
+        AtomicInteger runs = new AtomicInteger();
+
+        standalone().afterCommit(runs::incrementAndGet);
+
+        assertThat(runs).hasValue(1);
+    }
+
+    // A runner on a standalone server, for tests of services that write through one
+    static TransactionRunner standalone() {
+        return runner(mock(MongoTransactionManager.class), false);
+    }
+
+    private static TransactionRunner runner(MongoTransactionManager transactionManager, boolean transactional) {
+        MongoTopology mongoTopology = mock(MongoTopology.class);
+        when(mongoTopology.supportsTransactions()).thenReturn(transactional);
+        TransactionRunner runner = new TransactionRunner(transactionManager, 5);
+        ReflectionTestUtils.setField(runner, "mongoTopology", mongoTopology);
+        ReflectionTestUtils.setField(runner, "maxAttempts", 3);
+        ReflectionTestUtils.setField(runner, "retryBackoffMillis", 0L);
+        return runner;
+    }
+
+    private static MongoTransactionManager transactionManager() {
+        MongoTransactionManager transactionManager = mock(MongoTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        return transactionManager;
+    }
+
+    private static MongoException transientError() {
+        MongoException error = new MongoException(112, "WriteConflict");
+        error.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        return error;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pickupkart.support;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.InetSocketAddress;
+
+// An in-process MongoDB wire protocol server (no transactions, change streams or query planner),
+// for tests of conditional updates and bulk writes that must run without Docker
+public final class InMemoryMongo implements AutoCloseable {
+    private final MongoServer server;
+
+    private final MongoClient client;
+
+    private final MongoTemplate mongoTemplate;
+
+    public InMemoryMongo() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "pickupkart");
+    }
+
+    public String uri() {
+        InetSocketAddress address = server.getLocalAddress();
+        return "mongodb://" + address.getHostString() + ":" + address.getPort() + "/pickupkart";
+    }
+
+    public MongoTemplate mongoTemplate() {
+        return mongoTemplate;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        server.shutdownNow();
+    }
+}